@@ -0,0 +1,25 @@
+package castle.comp3021.assignment.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks with the allocation profiler ({@code -prof gc}), so that the allocation rate is reported next
+ * to the throughput.
+ * <p>
+ * Arguments are the usual JMH command line options, e.g. {@code MoveGeneration -p size=9,25 -p phase=late} to run
+ * a subset of the benchmarks and parameters.
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        var options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
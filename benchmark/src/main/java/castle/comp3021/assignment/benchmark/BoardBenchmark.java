@@ -0,0 +1,48 @@
+package castle.comp3021.assignment.benchmark;
+
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of moving pieces and copying games.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+    /**
+     * Move a piece there and back, so that the position stays the same. If every available move captures, the first
+     * move is made and unmade instead.
+     */
+    @Benchmark
+    public void movePiece(GameState state) {
+        if (state.quietMove != null) {
+            state.game.movePiece(state.quietMove);
+            state.game.movePiece(state.quietMoveBack);
+        } else {
+            state.game.makeMove(state.moves.get(0));
+            state.game.unmakeMove();
+        }
+    }
+
+    @Benchmark
+    public void makeAndUnmakeMove(GameState state) {
+        state.game.makeMove(state.moves.get(0));
+        state.game.unmakeMove();
+    }
+
+    @Benchmark
+    public JesonMor cloneGame(GameState state) throws CloneNotSupportedException {
+        return state.game.clone();
+    }
+}
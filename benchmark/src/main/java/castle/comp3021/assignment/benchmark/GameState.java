@@ -0,0 +1,165 @@
+package castle.comp3021.assignment.benchmark;
+
+import castle.comp3021.assignment.player.RandomPlayer;
+import castle.comp3021.assignment.protocol.Configuration;
+import castle.comp3021.assignment.protocol.Move;
+import castle.comp3021.assignment.protocol.MoveList;
+import castle.comp3021.assignment.protocol.Piece;
+import castle.comp3021.assignment.protocol.Player;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * A game position shared by the benchmarks, parameterized by board size and game phase.
+ * <p>
+ * The position is the default layout of {@link Configuration#setAllInitialPieces()} after a number of moves chosen
+ * by a random generator with a fixed seed, so every run benchmarks the same positions:
+ * <ul>
+ *     <li>early: the initial position</li>
+ *     <li>mid: after {@code 2 * size} moves</li>
+ *     <li>late: after {@code 6 * size} moves preferring captures, so that some pieces are gone</li>
+ * </ul>
+ * Moves which would end the game or leave the next player without moves are not played.
+ * <p>
+ * The game does not record moves, as the benchmarks move pieces without undoing them and the records would grow
+ * without bound. The move cache is turned off, so that the benchmarks of the game measure generating the moves rather
+ * than looking up the moves of the same position again.
+ */
+@State(Scope.Thread)
+public class GameState {
+    private static final long SEED = 3021;
+
+    /**
+     * Odd sizes only, as the board needs a central square
+     */
+    @Param({"3", "5", "9", "15", "25"})
+    public int size;
+
+    @Param({"early", "mid", "late"})
+    public String phase;
+
+    public JesonMor game;
+
+    public Player player;
+
+    /**
+     * Available moves of the player to move
+     */
+    public MoveList moves;
+
+    /**
+     * A sample of moves to validate: the available moves and the same moves reflected, most of which are invalid
+     */
+    public Move[] candidates;
+
+    /**
+     * An available move which does not capture, and the move back
+     */
+    public Move quietMove;
+    public Move quietMoveBack;
+
+    /**
+     * Player, piece and move of the last move, for checking the winner
+     */
+    public Piece lastPiece;
+    public Move lastMove;
+    public Player lastPlayer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var configuration = new Configuration(size,
+                new Player[]{new RandomPlayer("White"), new RandomPlayer("Black")}, 1);
+        configuration.setAllInitialPieces();
+        game = new JesonMor(configuration);
+        game.setRecordMoves(false);
+        game.setCacheMoves(false);
+
+        int plies;
+        boolean preferCaptures;
+        switch (phase) {
+            case "early":
+                plies = 0;
+                preferCaptures = false;
+                break;
+            case "mid":
+                plies = 2 * size;
+                preferCaptures = false;
+                break;
+            case "late":
+                plies = 6 * size;
+                preferCaptures = true;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown phase " + phase);
+        }
+        play(plies, preferCaptures);
+
+        player = game.getCurrentPlayer();
+        moves = new MoveList();
+        game.getAvailableMoves(player, moves);
+        candidates = new Move[moves.size() * 2];
+        for (int i = 0; i < moves.size(); i++) {
+            var move = game.toMove(moves.get(i));
+            candidates[2 * i] = move;
+            candidates[2 * i + 1] = Move.of(size - 1 - move.getSource().x(), move.getSource().y(),
+                    size - 1 - move.getDestination().x(), move.getDestination().y());
+        }
+        for (int i = 0; i < moves.size(); i++) {
+            if (!MoveList.isCapture(moves.get(i))) {
+                quietMove = game.toMove(moves.get(i));
+                quietMoveBack = Move.of(quietMove.getDestination(), quietMove.getSource());
+                break;
+            }
+        }
+    }
+
+    private void play(int plies, boolean preferCaptures) {
+        var random = new Random(SEED);
+        var available = new MoveList();
+        var captures = new MoveList();
+        var next = new MoveList();
+        for (int i = 0; i < plies; i++) {
+            var mover = game.getCurrentPlayer();
+            game.getAvailableMoves(mover, available);
+            captures.clear();
+            for (int j = 0; j < available.size(); j++) {
+                if (MoveList.isCapture(available.get(j))) {
+                    captures.add(available.get(j));
+                }
+            }
+            var from = preferCaptures && !captures.isEmpty() ? captures : available;
+            var played = false;
+            // try a few moves in case the first ones end the game
+            for (int attempt = 0; attempt < 8 && !from.isEmpty() && !played; attempt++) {
+                var move = game.toMove(from.get(random.nextInt(from.size())));
+                var piece = game.getPiece(move.getSource());
+                game.makeMove(move);
+                game.getAvailableMoves(game.getCurrentPlayer(), next);
+                if (game.getWinner(mover, piece, move) == null && !next.isEmpty()) {
+                    lastPlayer = mover;
+                    lastPiece = piece;
+                    lastMove = move;
+                    played = true;
+                } else {
+                    game.unmakeMove();
+                }
+            }
+            if (!played) {
+                break;
+            }
+        }
+        if (lastMove == null) {
+            // no move played yet: check the winner after the first available move instead
+            lastPlayer = game.getCurrentPlayer();
+            game.getAvailableMoves(lastPlayer, available);
+            lastMove = game.toMove(available.get(0));
+            lastPiece = game.getPiece(lastMove.getSource());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package castle.comp3021.assignment.benchmark;
+
+import castle.comp3021.assignment.protocol.BitBoard;
+import castle.comp3021.assignment.protocol.Move;
+import castle.comp3021.assignment.protocol.MoveList;
+import castle.comp3021.assignment.protocol.Place;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of move generation of the game and of single pieces.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark {
+    /**
+     * Squares of the knights and archers of the player to move
+     */
+    @State(Scope.Thread)
+    public static class Pieces {
+        public int[] knights;
+        public int[] archers;
+        public MoveList moves = new MoveList();
+
+        @Setup(Level.Trial)
+        public void setUp(GameState state) {
+            var bitBoard = state.game.getBitBoard();
+            var player = state.game.getCurrentPlayerID();
+            knights = squaresOf(bitBoard, player, BitBoard.KNIGHT);
+            archers = squaresOf(bitBoard, player, BitBoard.ARCHER);
+        }
+
+        private static int[] squaresOf(BitBoard bitBoard, int player, int type) {
+            var squares = new int[bitBoard.count(player, type)];
+            var pieces = bitBoard.getPlayerOccupancy(player);
+            var ofType = bitBoard.getTypeOccupancy(type);
+            var count = 0;
+            for (int sq = BitBoard.nextSquare(pieces, 0); sq >= 0; sq = BitBoard.nextSquare(pieces, sq + 1)) {
+                if (BitBoard.contains(ofType, sq)) {
+                    squares[count++] = sq;
+                }
+            }
+            return squares;
+        }
+    }
+
+    @Benchmark
+    public Move[] jesonMorMoveArray(GameState state) {
+        return state.game.getAvailableMoves(state.player);
+    }
+
+    @Benchmark
+    public int jesonMorMoveList(GameState state, Pieces pieces) {
+        state.game.getAvailableMoves(state.player, pieces.moves);
+        return pieces.moves.size();
+    }
+
+    @Benchmark
+    public void knightMoveArray(GameState state, Pieces pieces, Blackhole blackhole) {
+        var bitBoard = state.game.getBitBoard();
+        for (var square : pieces.knights) {
+            var knight = state.game.getPiece(bitBoard.x(square), bitBoard.y(square));
+            blackhole.consume(knight.getAvailableMoves(state.game, Place.of(bitBoard.x(square),
+                    bitBoard.y(square))));
+        }
+    }
+
+    @Benchmark
+    public int knightMoveList(GameState state, Pieces pieces) {
+        var bitBoard = state.game.getBitBoard();
+        pieces.moves.clear();
+        for (var square : pieces.knights) {
+            state.game.getPiece(bitBoard.x(square), bitBoard.y(square))
+                    .getAvailableMoves(state.game, square, pieces.moves);
+        }
+        return pieces.moves.size();
+    }
+
+    @Benchmark
+    public void archerMoveArray(GameState state, Pieces pieces, Blackhole blackhole) {
+        var bitBoard = state.game.getBitBoard();
+        for (var square : pieces.archers) {
+            var archer = state.game.getPiece(bitBoard.x(square), bitBoard.y(square));
+            blackhole.consume(archer.getAvailableMoves(state.game, Place.of(bitBoard.x(square),
+                    bitBoard.y(square))));
+        }
+    }
+
+    @Benchmark
+    public int archerMoveList(GameState state, Pieces pieces) {
+        var bitBoard = state.game.getBitBoard();
+        pieces.moves.clear();
+        for (var square : pieces.archers) {
+            state.game.getPiece(bitBoard.x(square), bitBoard.y(square))
+                    .getAvailableMoves(state.game, square, pieces.moves);
+        }
+        return pieces.moves.size();
+    }
+}
@@ -0,0 +1,38 @@
+package castle.comp3021.assignment.benchmark;
+
+import castle.comp3021.assignment.protocol.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of move validation and winner detection.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleBenchmark {
+    /**
+     * Validate every candidate move of {@link GameState}, about half of which are invalid.
+     */
+    @Benchmark
+    public void validateMove(GameState state, Blackhole blackhole) {
+        for (var move : state.candidates) {
+            blackhole.consume(state.player.validateMove(state.game, move));
+        }
+    }
+
+    @Benchmark
+    public Player getWinner(GameState state) {
+        return state.game.getWinner(state.lastPlayer, state.lastPiece, state.lastMove);
+    }
+}
@@ -2,6 +2,7 @@ package castle.comp3021.assignment.gui;
 
 import castle.comp3021.assignment.textversion.JesonMor;
 import castle.comp3021.assignment.protocol.*;
+import castle.comp3021.assignment.protocol.event.GameEvent;
 import castle.comp3021.assignment.gui.controllers.Renderer;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
@@ -34,6 +35,9 @@ public class FXJesonMor extends JesonMor {
 
     public void incMove(){
         ++numMoves;
+        if (this.hasEventSubscribers()) {
+            this.publish(GameEvent.turnChange(numMoves, getCurrentPlayer()));
+        }
     }
 
     /**
@@ -105,6 +109,10 @@ public class FXJesonMor extends JesonMor {
             scorePlayer1Property.set(player.getScore());
         else
             scorePlayer2Property.set(player.getScore());
+
+        if (this.hasEventSubscribers()) {
+            this.publish(GameEvent.scoreChange(numMoves, player, player.getScore()));
+        }
     }
 
     public void resetGame(){
@@ -127,5 +135,6 @@ public class FXJesonMor extends JesonMor {
         resetMoveRecords();
         numMoves = 0;
         board = configuration.getInitialBoard();
+        syncBoard();
     }
 }
\ No newline at end of file
@@ -163,6 +163,7 @@ public class GamePlayPane extends BasePane {
     void initializeGame(@NotNull FXJesonMor fxJesonMor) {
         jesonMor = fxJesonMor;
         jesonMor.getConfiguration().setAllInitialPieces();
+        jesonMor.syncBoard();
 
         startButton.setDisable(false);
         restartButton.setDisable(true);
@@ -290,7 +291,7 @@ public class GamePlayPane extends BasePane {
 
         Player currPlayer = jesonMor.getCurrentPlayer();
         Move[] availableMoves = jesonMor.getAvailableMoves(jesonMor.getCurrentPlayer());
-        Move movePending = new Move(srcX,srcY,toBoardCoordinate(event.getX()),toBoardCoordinate(event.getY()));
+        Move movePending = Move.of(srcX,srcY,toBoardCoordinate(event.getX()),toBoardCoordinate(event.getY()));
         Move lastValidMove = Arrays.stream(availableMoves).filter((move)->move.equals(movePending)).findFirst().orElse(null);
         String errorMsg = validateMove(jesonMor,movePending);
         if (errorMsg == null && lastValidMove != null){
@@ -353,32 +354,9 @@ public class GamePlayPane extends BasePane {
     }
 
     private String validateMove(Game game, Move move) {
-        Rule rules[];
-        if (game.getPiece(move.getSource()).getLabel() == 'K'){
-            rules = new Rule[]{
-                    new OutOfBoundaryRule(),
-                    new OccupiedRule(),
-                    new VacantRule(),
-                    new NilMoveRule(),
-                    new FirstNMovesProtectionRule(game.getConfiguration().getNumMovesProtection()),
-                    new KnightMoveRule(),
-                    new KnightBlockRule(),
-            };
-        }else{
-            rules = new Rule[]{
-                    new OutOfBoundaryRule(),
-                    new OccupiedRule(),
-                    new VacantRule(),
-                    new NilMoveRule(),
-                    new FirstNMovesProtectionRule(game.getConfiguration().getNumMovesProtection()),
-                    new ArcherMoveRule(),
-            };
-        }
-        for (var rule :
-                rules) {
-            if (!rule.validate(game, move)) {
-                return rule.getDescription();
-            }
+        var error = RuleEngine.of(game.getConfiguration()).validate(game, move);
+        if (error != null) {
+            return error;
         }
         boolean isHumanPlayer = (game.getCurrentPlayer() == game.getConfiguration().getPlayers()[0] ? game.getConfiguration().isFirstPlayerHuman()  : game.getConfiguration().isSecondPlayerHuman());
         if (game.getPiece(move.getSource()).getPlayer() != game.getCurrentPlayer() || !isHumanPlayer){
@@ -1,7 +1,9 @@
 package castle.comp3021.assignment.piece;
 
+import castle.comp3021.assignment.protocol.BitBoard;
 import castle.comp3021.assignment.protocol.Game;
 import castle.comp3021.assignment.protocol.Move;
+import castle.comp3021.assignment.protocol.MoveList;
 import castle.comp3021.assignment.protocol.Piece;
 import castle.comp3021.assignment.protocol.Place;
 import castle.comp3021.assignment.protocol.Player;
@@ -9,8 +11,6 @@ import castle.comp3021.assignment.gui.controllers.Renderer;
 import castle.comp3021.assignment.gui.controllers.ResourceLoader;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
-
 /**
  * Archer piece that moves similar to cannon in chinese chess.
  * Rules of move of Archer can be found in wikipedia (https://en.wikipedia.org/wiki/Xiangqi#Cannon).
@@ -29,39 +29,118 @@ public class Archer extends Piece {
 
     @Override
     public Move[] getAvailableMoves(Game game, Place source) {
-        var moves = new ArrayList<Move>();
-        for (int x = 0; x < game.getConfiguration().getSize(); x++) {
-            if (x != source.x()) {
-                moves.add(new Move(source, x, source.y()));
+        var moves = new MoveList(2 * game.getConfiguration().getSize());
+        this.getAvailableMoves(game, game.getBitBoard().square(source), moves);
+        return game.toMoves(moves);
+    }
+
+    /**
+     * Generate the moves by walking each of the four rays from the source once.
+     * On each ray, quiet moves are emitted until the first blocking piece (the screen), and then the ray continues past
+     * the screen to the next piece, which is the only one that can be captured.
+     * The moves are emitted in the same order as scanning the row and then the column in increasing coordinates.
+     */
+    @Override
+    public void getAvailableMoves(Game game, int source, MoveList moves) {
+        var size = game.getConfiguration().getSize();
+        var bitBoard = game.getBitBoard();
+        var occupied = bitBoard.getOccupied();
+        var player = game.getPlayerIndex(this.getPlayer());
+        var canCapture = FirstNMovesProtectionRule.isCaptureAllowed(game);
+        // rays along x (stride size) then along y (stride 1), negative direction first
+        for (var axis = 0; axis < 2; axis++) {
+            var coordinate = axis == 0 ? bitBoard.x(source) : bitBoard.y(source);
+            var stride = axis == 0 ? size : 1;
+            for (var direction = -1; direction <= 1; direction += 2) {
+                var rayStart = moves.size();
+                var square = source;
+                var screened = false;
+                for (int c = coordinate + direction; c >= 0 && c < size; c += direction) {
+                    square += direction * stride;
+                    if (!BitBoard.contains(occupied, square)) {
+                        if (!screened) {
+                            moves.add(source, square, false);
+                        }
+                    } else if (!screened) {
+                        screened = true;
+                    } else {
+                        if (canCapture && bitBoard.ownerAt(square) != player) {
+                            moves.add(source, square, true);
+                        }
+                        break;
+                    }
+                }
+                if (direction < 0) {
+                    // reverse the negative ray so that coordinates are increasing
+                    moves.reverse(rayStart, moves.size());
+                }
             }
         }
-        for (int y = 0; y < game.getConfiguration().getSize(); y++) {
-            if (y != source.y()) {
-                moves.add(new Move(source, source.x(), y));
+    }
+
+    /**
+     * Generate the captures only: on each ray, skip to the screen and take the next piece if it is an enemy piece.
+     * The captures are emitted in the same order as by {@link Archer#getAvailableMoves(Game, int, MoveList)}.
+     */
+    @Override
+    public void getAvailableCaptures(Game game, int source, MoveList moves) {
+        if (!FirstNMovesProtectionRule.isCaptureAllowed(game)) {
+            return;
+        }
+        var size = game.getConfiguration().getSize();
+        var bitBoard = game.getBitBoard();
+        var occupied = bitBoard.getOccupied();
+        var player = game.getPlayerIndex(this.getPlayer());
+        for (var axis = 0; axis < 2; axis++) {
+            var coordinate = axis == 0 ? bitBoard.x(source) : bitBoard.y(source);
+            var stride = axis == 0 ? size : 1;
+            for (var direction = -1; direction <= 1; direction += 2) {
+                var square = source;
+                var screened = false;
+                for (int c = coordinate + direction; c >= 0 && c < size; c += direction) {
+                    square += direction * stride;
+                    if (!BitBoard.contains(occupied, square)) {
+                        continue;
+                    }
+                    if (screened) {
+                        if (bitBoard.ownerAt(square) != player) {
+                            moves.add(source, square, true);
+                        }
+                        break;
+                    }
+                    screened = true;
+                }
             }
         }
-
-        return moves.stream()
-                .filter(move -> validateMove(game, move))
-                .toArray(Move[]::new);
     }
 
-    private boolean validateMove(Game game, Move move) {
-        var rules = new Rule[]{
-                new OutOfBoundaryRule(),
-                new OccupiedRule(),
-                new VacantRule(),
-                new NilMoveRule(),
-                new FirstNMovesProtectionRule(game.getConfiguration().getNumMovesProtection()),
-                new ArcherMoveRule(),
-        };
-        for (var rule :
-                rules) {
-            if (!rule.validate(game, move)) {
-                return false;
+    /**
+     * Generate the quiet moves only: on each ray, the empty squares before the screen.
+     * The moves are emitted in the same order as by {@link Archer#getAvailableMoves(Game, int, MoveList)}.
+     */
+    @Override
+    public void getAvailableQuietMoves(Game game, int source, MoveList moves) {
+        var size = game.getConfiguration().getSize();
+        var bitBoard = game.getBitBoard();
+        var occupied = bitBoard.getOccupied();
+        for (var axis = 0; axis < 2; axis++) {
+            var coordinate = axis == 0 ? bitBoard.x(source) : bitBoard.y(source);
+            var stride = axis == 0 ? size : 1;
+            for (var direction = -1; direction <= 1; direction += 2) {
+                var rayStart = moves.size();
+                var square = source;
+                for (int c = coordinate + direction; c >= 0 && c < size; c += direction) {
+                    square += direction * stride;
+                    if (BitBoard.contains(occupied, square)) {
+                        break;
+                    }
+                    moves.add(source, square, false);
+                }
+                if (direction < 0) {
+                    moves.reverse(rayStart, moves.size());
+                }
             }
         }
-        return true;
     }
 
     /**
@@ -16,6 +16,16 @@ public class FirstNMovesProtectionRule implements Rule {
         this.numProtectedMoves = numProtectedMoves;
     }
 
+    /**
+     * Check whether captures are allowed in the current position, without creating the rule, e.g. for generating moves.
+     *
+     * @param game the current game object
+     * @return whether the number of moves with capture protection has passed
+     */
+    public static boolean isCaptureAllowed(Game game) {
+        return game.getNumMoves() >= game.getConfiguration().getNumMovesProtection();
+    }
+
     @Override
     public boolean validate(Game game, Move move) {
         var destination = move.getDestination();
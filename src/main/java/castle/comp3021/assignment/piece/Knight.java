@@ -1,7 +1,9 @@
 package castle.comp3021.assignment.piece;
 
+import castle.comp3021.assignment.protocol.BitBoard;
 import castle.comp3021.assignment.protocol.Game;
 import castle.comp3021.assignment.protocol.Move;
+import castle.comp3021.assignment.protocol.MoveList;
 import castle.comp3021.assignment.protocol.Piece;
 import castle.comp3021.assignment.protocol.Place;
 import castle.comp3021.assignment.protocol.Player;
@@ -9,8 +11,6 @@ import castle.comp3021.assignment.gui.controllers.Renderer;
 import castle.comp3021.assignment.gui.controllers.ResourceLoader;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
-
 /**
  * Knight piece that moves similar to knight in chess.
  * Rules of move of Knight can be found in wikipedia (https://en.wikipedia.org/wiki/Knight_(chess)).
@@ -31,40 +31,59 @@ public class Knight extends Piece {
 
     @Override
     public Move[] getAvailableMoves(Game game, Place source) {
-        var moves = new ArrayList<Move>();
-        var steps = new int[]{1, -1, 2, -2};
-        for (var stepX :
-                steps) {
-            for (var stepY :
-                    steps) {
-                var destination = new Place(source.x() + stepX, source.y() + stepY);
-                if (Math.abs(destination.x() - source.x()) + Math.abs(destination.y() - source.y()) == 3) {
-                    moves.add(new Move(source, destination));
-                }
+        var moves = new MoveList(KnightTables.MAX_MOVES);
+        this.getAvailableMoves(game, game.getBitBoard().square(source), moves);
+        return game.toMoves(moves);
+    }
+
+    @Override
+    public void getAvailableMoves(Game game, int source, MoveList moves) {
+        var bitBoard = game.getBitBoard();
+        var tables = KnightTables.of(game.getConfiguration().getSize());
+        var occupied = bitBoard.getOccupied();
+        var player = game.getPlayerIndex(this.getPlayer());
+        var canCapture = FirstNMovesProtectionRule.isCaptureAllowed(game);
+        for (int entry = tables.start(source); entry < tables.end(source); entry++) {
+            if (BitBoard.contains(occupied, tables.leg(entry))) {
+                continue;
+            }
+            var target = tables.target(entry);
+            var capture = BitBoard.contains(occupied, target);
+            if (capture && (!canCapture || bitBoard.ownerAt(target) == player)) {
+                continue;
+            }
+            moves.add(source, target, capture);
+        }
+    }
+
+    @Override
+    public void getAvailableCaptures(Game game, int source, MoveList moves) {
+        if (!FirstNMovesProtectionRule.isCaptureAllowed(game)) {
+            return;
+        }
+        var bitBoard = game.getBitBoard();
+        var tables = KnightTables.of(game.getConfiguration().getSize());
+        var occupied = bitBoard.getOccupied();
+        var player = game.getPlayerIndex(this.getPlayer());
+        for (int entry = tables.start(source); entry < tables.end(source); entry++) {
+            var target = tables.target(entry);
+            if (BitBoard.contains(occupied, target) && !BitBoard.contains(occupied, tables.leg(entry))
+                    && bitBoard.ownerAt(target) != player) {
+                moves.add(source, target, true);
             }
         }
-        return moves.stream()
-                .filter(move -> validateMove(game, move))
-                .toArray(Move[]::new);
     }
 
-    private boolean validateMove(Game game, Move move) {
-        var rules = new Rule[]{
-                new OutOfBoundaryRule(),
-                new OccupiedRule(),
-                new VacantRule(),
-                new NilMoveRule(),
-                new FirstNMovesProtectionRule(game.getConfiguration().getNumMovesProtection()),
-                new KnightMoveRule(),
-                new KnightBlockRule(),
-        };
-        for (var rule :
-                rules) {
-            if (!rule.validate(game, move)) {
-                return false;
+    @Override
+    public void getAvailableQuietMoves(Game game, int source, MoveList moves) {
+        var tables = KnightTables.of(game.getConfiguration().getSize());
+        var occupied = game.getBitBoard().getOccupied();
+        for (int entry = tables.start(source); entry < tables.end(source); entry++) {
+            var target = tables.target(entry);
+            if (!BitBoard.contains(occupied, target) && !BitBoard.contains(occupied, tables.leg(entry))) {
+                moves.add(source, target, false);
             }
         }
-        return true;
     }
 
     /**
@@ -2,7 +2,6 @@ package castle.comp3021.assignment.piece;
 
 import castle.comp3021.assignment.protocol.Game;
 import castle.comp3021.assignment.protocol.Move;
-import castle.comp3021.assignment.protocol.Place;
 
 /**
  * The blocking rule applying on Knights. The rule is similar to the blocking rule for horse in Chinese chess.
@@ -18,13 +17,11 @@ public class KnightBlockRule implements Rule {
         var source = move.getSource();
         var destination = move.getDestination();
         if (Math.abs(source.x() - destination.x()) == 2) {
-            var blockPlace = new Place((source.x() + destination.x()) / 2, source.y());
             // some other piece is at the block place of knight
-            return game.getPiece(blockPlace) == null;
+            return game.getPiece((source.x() + destination.x()) / 2, source.y()) == null;
         } else if (Math.abs(source.y() - destination.y()) == 2) {
-            var blockPlace = new Place(source.x(), (source.y() + destination.y()) / 2);
             // some other piece is at the block place of knight
-            return game.getPiece(blockPlace) == null;
+            return game.getPiece(source.x(), (source.y() + destination.y()) / 2) == null;
         } else {
             return false;
         }
@@ -0,0 +1,145 @@
+package castle.comp3021.assignment.piece;
+
+import castle.comp3021.assignment.protocol.Move;
+import castle.comp3021.assignment.protocol.Place;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed moves of {@link Knight} for one board size.
+ * <p>
+ * For every square (indexed as in {@link castle.comp3021.assignment.protocol.BitBoard}) the tables hold the knight
+ * destinations inside the board and the "leg" square checked by {@link KnightBlockRule}.
+ * The entries of square {@code s} are stored in the range {@code [start(s), end(s))}.
+ * Tables are immutable, built once per board size and shared by all games.
+ */
+public final class KnightTables {
+    /**
+     * The maximum number of knight moves from one square
+     */
+    public static final int MAX_MOVES = 8;
+
+    /**
+     * Steps of knight moves, in the same order as they were generated by the original rule-based generator.
+     */
+    private static final int[][] STEPS = {
+            {1, 2}, {1, -2}, {-1, 2}, {-1, -2},
+            {2, 1}, {2, -1}, {-2, 1}, {-2, -1},
+    };
+
+    /**
+     * Tables indexed by board size
+     */
+    private static final KnightTables[] TABLES = new KnightTables[Place.MAX_SIZE + 1];
+
+    private final int size;
+
+    /**
+     * Index of the first entry of each square, with one extra element marking the end of the last square
+     */
+    private final int[] offsets;
+
+    private final int[] targets;
+
+    private final int[] legs;
+
+    private final Move[] moves;
+
+    private KnightTables(int size) {
+        this.size = size;
+        var numSquares = size * size;
+        this.offsets = new int[numSquares + 1];
+        var targets = new int[numSquares * MAX_MOVES];
+        var legs = new int[numSquares * MAX_MOVES];
+        var moves = new Move[numSquares * MAX_MOVES];
+        var count = 0;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                offsets[x * size + y] = count;
+                for (var step : STEPS) {
+                    var toX = x + step[0];
+                    var toY = y + step[1];
+                    if (toX < 0 || toY < 0 || toX >= size || toY >= size) {
+                        continue;
+                    }
+                    targets[count] = toX * size + toY;
+                    if (Math.abs(step[0]) == 2) {
+                        legs[count] = (x + step[0] / 2) * size + y;
+                    } else {
+                        legs[count] = x * size + (y + step[1] / 2);
+                    }
+                    moves[count] = Move.of(x, y, toX, toY);
+                    count++;
+                }
+            }
+        }
+        offsets[numSquares] = count;
+        this.targets = Arrays.copyOf(targets, count);
+        this.legs = Arrays.copyOf(legs, count);
+        this.moves = Arrays.copyOf(moves, count);
+    }
+
+    /**
+     * Get the tables of a board size, building them on first use.
+     *
+     * @param size size of the gameboard
+     * @return the shared tables
+     */
+    public static KnightTables of(int size) {
+        var tables = TABLES[size];
+        if (tables == null) {
+            synchronized (TABLES) {
+                tables = TABLES[size];
+                if (tables == null) {
+                    tables = new KnightTables(size);
+                    TABLES[size] = tables;
+                }
+            }
+        }
+        return tables;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @param square source square
+     * @return index of the first entry of the square
+     */
+    public int start(int square) {
+        return offsets[square];
+    }
+
+    /**
+     * @param square source square
+     * @return index after the last entry of the square
+     */
+    public int end(int square) {
+        return offsets[square + 1];
+    }
+
+    /**
+     * @param entry index of the entry
+     * @return destination square of the entry
+     */
+    public int target(int entry) {
+        return targets[entry];
+    }
+
+    /**
+     * @param entry index of the entry
+     * @return the square which blocks the knight if it is occupied
+     */
+    public int leg(int entry) {
+        return legs[entry];
+    }
+
+    /**
+     * @param entry index of the entry
+     * @return the shared {@link Move} object of the entry
+     */
+    public Move move(int entry) {
+        return moves[entry];
+    }
+}
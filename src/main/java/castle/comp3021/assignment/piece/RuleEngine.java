@@ -0,0 +1,536 @@
+package castle.comp3021.assignment.piece;
+
+import castle.comp3021.assignment.protocol.BitBoard;
+import castle.comp3021.assignment.protocol.Configuration;
+import castle.comp3021.assignment.protocol.Game;
+import castle.comp3021.assignment.protocol.Move;
+import castle.comp3021.assignment.protocol.MoveList;
+import castle.comp3021.assignment.protocol.Piece;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The rules of moves compiled into one validator per piece type, replacing the arrays of {@link Rule} objects which
+ * were created for every move.
+ * <p>
+ * The rules are the predefined ones, in the order used for error messages: {@link OutOfBoundaryRule},
+ * {@link OccupiedRule}, {@link VacantRule}, {@link NilMoveRule}, {@link FirstNMovesProtectionRule},
+ * {@link ArcherMoveRule}, {@link KnightMoveRule} and {@link KnightBlockRule}. Each rule is checked by code inlined in
+ * the engine, which reads the board without creating objects. The boundary and vacant checks always come first;
+ * the checks of a piece type are then reordered from time to time so that the rules which reject most often are
+ * checked first. When a move is rejected, the rules are checked again in the original order, so that the description
+ * of the first violated {@link Rule} is returned just like before.
+ * <p>
+ * An engine is shared by all games with the same number of protected moves, see {@link RuleEngine#of(Configuration)}.
+ * Each thread counts rejections on its own and reorders the checks from its own counts; a new order is published as a
+ * fresh array which is never modified, so threads never see a partly sorted order. With
+ * {@link RuleEngine#setTiming(boolean)}, the engine also counts the time spent in each rule.
+ * <p>
+ * Many moves can be validated against one position at once with {@link RuleEngine#validateAll(Game, Move[])}, which
+ * only tells which moves are valid.
+ */
+public final class RuleEngine {
+    /* Rule indexes start */
+    private static final int OUT_OF_BOUNDARY = 0;
+    private static final int OCCUPIED = 1;
+    private static final int VACANT = 2;
+    private static final int NIL_MOVE = 3;
+    private static final int PROTECTION = 4;
+    private static final int ARCHER_MOVE = 5;
+    private static final int KNIGHT_MOVE = 6;
+    private static final int KNIGHT_BLOCK = 7;
+    /* Rule indexes end */
+
+    /**
+     * Rules checked for each piece type after the boundary and vacant checks, in the original order
+     */
+    private static final int[][] TYPE_RULES = {
+            {OCCUPIED, NIL_MOVE, PROTECTION, KNIGHT_MOVE, KNIGHT_BLOCK},
+            {OCCUPIED, NIL_MOVE, PROTECTION, ARCHER_MOVE},
+    };
+
+    /**
+     * Number of validations of a piece type between reorderings of its checks
+     */
+    private static final int REORDER_INTERVAL = 1024;
+
+    /**
+     * Engines indexed by number of protected moves
+     */
+    private static final ConcurrentHashMap<Integer, RuleEngine> ENGINES = new ConcurrentHashMap<>();
+
+    private final int numMovesProtection;
+
+    private final Rule[] rules;
+
+    /**
+     * Current order of checks of each piece type
+     */
+    private final AtomicReferenceArray<int[]> orders = new AtomicReferenceArray<>(BitBoard.NUM_TYPES);
+
+    /**
+     * Counts of the calling thread used for reordering
+     */
+    private final ThreadLocal<Counters> counters;
+
+    private volatile boolean timing = false;
+
+    /* Statistics start */
+    private final AtomicLongArray checks;
+    private final AtomicLongArray nanos;
+    /* Statistics end */
+
+    private RuleEngine(int numMovesProtection) {
+        this.numMovesProtection = numMovesProtection;
+        this.rules = new Rule[]{
+                new OutOfBoundaryRule(),
+                new OccupiedRule(),
+                new VacantRule(),
+                new NilMoveRule(),
+                new FirstNMovesProtectionRule(numMovesProtection),
+                new ArcherMoveRule(),
+                new KnightMoveRule(),
+                new KnightBlockRule(),
+        };
+        for (int type = 0; type < BitBoard.NUM_TYPES; type++) {
+            orders.set(type, TYPE_RULES[type].clone());
+        }
+        this.counters = ThreadLocal.withInitial(() -> new Counters(rules.length));
+        this.checks = new AtomicLongArray(rules.length);
+        this.nanos = new AtomicLongArray(rules.length);
+    }
+
+    /**
+     * Get the engine of a configuration, compiling it on first use.
+     *
+     * @param configuration the configuration
+     * @return the shared engine
+     */
+    public static RuleEngine of(Configuration configuration) {
+        return of(configuration.getNumMovesProtection());
+    }
+
+    /**
+     * @param numMovesProtection number of moves with capture protection
+     * @return the shared engine
+     */
+    public static RuleEngine of(int numMovesProtection) {
+        return ENGINES.computeIfAbsent(numMovesProtection, RuleEngine::new);
+    }
+
+    /**
+     * Validate a move against all rules.
+     *
+     * @param game the current game object
+     * @param move the move to validate
+     * @return the description of the first violated rule, or null if the move is valid
+     */
+    public String validate(Game game, Move move) {
+        // read once, as it is volatile
+        var timing = this.timing;
+        if (!this.check(timing, OUT_OF_BOUNDARY, game, move, null)) {
+            return rules[OUT_OF_BOUNDARY].getDescription();
+        }
+        var piece = game.getPiece(move.getSource());
+        var type = BitBoard.typeOf(piece);
+        if (type < 0) {
+            // vacant source or another kind of piece
+            return this.validateInOrder(game, move);
+        }
+
+        var order = orders.get(type);
+        var rejected = -1;
+        // bit set of the rules which passed
+        var passed = 0;
+        for (var rule : order) {
+            if (!this.check(timing, rule, game, move, piece)) {
+                rejected = rule;
+                break;
+            }
+            passed |= 1 << rule;
+        }
+        var counters = this.counters.get();
+        if (rejected >= 0) {
+            counters.rejections[rejected]++;
+        }
+        if (++counters.validations[type] >= REORDER_INTERVAL) {
+            this.reorder(type, counters);
+        }
+        if (rejected < 0) {
+            return null;
+        }
+        // the first violated rule in the original order, which is at latest the rejecting one
+        for (var rule : TYPE_RULES[type]) {
+            if (rule == rejected || (passed & (1 << rule)) == 0 && !this.check(timing, rule, game, move, piece)) {
+                return rules[rule].getDescription();
+            }
+        }
+        return rules[rejected].getDescription();
+    }
+
+    private String validateInOrder(Game game, Move move) {
+        for (var rule : rules) {
+            if (!rule.validate(game, move)) {
+                return rule.getDescription();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sort the checks of a piece type by number of rejections of the calling thread, keeping the original order
+     * between equal counts.
+     */
+    private void reorder(int type, Counters counters) {
+        var rejections = counters.rejections;
+        counters.validations[type] = 0;
+        var order = TYPE_RULES[type].clone();
+        for (int i = 1; i < order.length; i++) {
+            var rule = order[i];
+            var j = i - 1;
+            for (; j >= 0 && rejections[order[j]] < rejections[rule]; j--) {
+                order[j + 1] = order[j];
+            }
+            order[j + 1] = rule;
+        }
+        for (var rule : order) {
+            rejections[rule] >>= 1;
+        }
+        orders.set(type, order);
+    }
+
+    private boolean check(boolean timing, int rule, Game game, Move move, Piece piece) {
+        if (!timing) {
+            return this.evaluate(rule, game, move, piece);
+        }
+        var start = System.nanoTime();
+        var result = this.evaluate(rule, game, move, piece);
+        nanos.addAndGet(rule, System.nanoTime() - start);
+        checks.incrementAndGet(rule);
+        return result;
+    }
+
+    /**
+     * Check one rule, with the same result as {@link Rule#validate(Game, Move)} of the rule. Except for the boundary
+     * rule, the move must be inside the board and its source must have a piece of a known type.
+     */
+    private boolean evaluate(int rule, Game game, Move move, Piece piece) {
+        var source = move.getSource();
+        var destination = move.getDestination();
+        switch (rule) {
+            case OUT_OF_BOUNDARY: {
+                var size = game.getConfiguration().getSize();
+                return source.x() >= 0 && source.y() >= 0 && source.x() < size && source.y() < size
+                        && destination.x() >= 0 && destination.y() >= 0
+                        && destination.x() < size && destination.y() < size;
+            }
+            case OCCUPIED: {
+                var captured = game.getPiece(destination.x(), destination.y());
+                return captured == null || !captured.getPlayer().equals(piece.getPlayer());
+            }
+            case VACANT:
+                return piece != null;
+            case NIL_MOVE:
+                return source.x() != destination.x() || source.y() != destination.y();
+            case PROTECTION:
+                return game.getNumMoves() >= numMovesProtection
+                        || game.getPiece(destination.x(), destination.y()) == null;
+            case ARCHER_MOVE:
+                return this.evaluateArcherMove(game, move, piece);
+            case KNIGHT_MOVE: {
+                var dx = Math.abs(destination.x() - source.x());
+                var dy = Math.abs(destination.y() - source.y());
+                return dx == 2 && dy == 1 || dx == 1 && dy == 2;
+            }
+            case KNIGHT_BLOCK:
+                if (Math.abs(source.x() - destination.x()) == 2) {
+                    return game.getPiece((source.x() + destination.x()) / 2, source.y()) == null;
+                } else if (Math.abs(source.y() - destination.y()) == 2) {
+                    return game.getPiece(source.x(), (source.y() + destination.y()) / 2) == null;
+                }
+                return false;
+            default:
+                throw new IllegalArgumentException("unknown rule " + rule);
+        }
+    }
+
+    private boolean evaluateArcherMove(Game game, Move move, Piece piece) {
+        var source = move.getSource();
+        var destination = move.getDestination();
+        var captured = game.getPiece(destination.x(), destination.y());
+        if (captured != null && captured.getPlayer().equals(piece.getPlayer())) {
+            return true;
+        }
+        int from;
+        int to;
+        int stride;
+        var bitBoard = game.getBitBoard();
+        if (source.x() == destination.x()) {
+            from = Math.min(source.y(), destination.y());
+            to = Math.max(source.y(), destination.y());
+            stride = 1;
+        } else if (source.y() == destination.y()) {
+            from = Math.min(source.x(), destination.x());
+            to = Math.max(source.x(), destination.x());
+            stride = game.getConfiguration().getSize();
+        } else {
+            return false;
+        }
+        // pieces in between source and destination
+        var occupied = bitBoard.getOccupied();
+        var first = stride == 1 ? bitBoard.square(source.x(), from) : bitBoard.square(from, source.y());
+        var numPieces = 0;
+        for (int i = from + 1, square = first + stride; i < to; i++, square += stride) {
+            if (BitBoard.contains(occupied, square) && ++numPieces > 1) {
+                return false;
+            }
+        }
+        return captured != null ? numPieces == 1 : numPieces == 0;
+    }
+
+    /**
+     * Validate many moves against the same position, with the same result as {@link RuleEngine#validate(Game, Move)}
+     * returning null. The occupancy of the board and whether captures are allowed are read once for the whole batch,
+     * the mover is looked up once for consecutive moves from the same square, and each move is checked on the bitboard
+     * without reading pieces.
+     *
+     * @param game  the current game object
+     * @param moves the moves to validate
+     * @return the indexes of the valid moves
+     */
+    public BitSet validateAll(Game game, Move[] moves) {
+        var valid = new BitSet(moves.length);
+        var bitBoard = game.getBitBoard();
+        var canCapture = game.getNumMoves() >= numMovesProtection;
+        // the mover of the previous move
+        var lastSource = -1;
+        var player = -1;
+        var type = -1;
+        for (int i = 0; i < moves.length; i++) {
+            var move = moves[i];
+            if (!this.evaluate(OUT_OF_BOUNDARY, game, move, null)) {
+                continue;
+            }
+            var source = bitBoard.square(move.getSource());
+            var destination = bitBoard.square(move.getDestination());
+            if (source != lastSource) {
+                lastSource = source;
+                player = bitBoard.ownerAt(source);
+                type = bitBoard.typeAt(source);
+            }
+            if (this.isValid(game, bitBoard, canCapture, player, type, source, destination)) {
+                valid.set(i);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Validate many packed moves against the same position.
+     *
+     * @param game  the current game object
+     * @param moves the packed moves to validate, whose capture flags are ignored
+     * @return a mask with bit {@code i % 64} of word {@code i / 64} set if move {@code i} is valid
+     * @see RuleEngine#validateAll(Game, Move[])
+     */
+    public long[] validateAll(Game game, MoveList moves) {
+        var mask = new long[(moves.size() + 63) >>> 6];
+        var bitBoard = game.getBitBoard();
+        var canCapture = game.getNumMoves() >= numMovesProtection;
+        var numSquares = bitBoard.getSize() * bitBoard.getSize();
+        var lastSource = -1;
+        var player = -1;
+        var type = -1;
+        for (int i = 0; i < moves.size(); i++) {
+            var source = MoveList.source(moves.get(i));
+            var destination = MoveList.destination(moves.get(i));
+            if (source >= numSquares || destination >= numSquares) {
+                continue;
+            }
+            if (source != lastSource) {
+                lastSource = source;
+                player = bitBoard.ownerAt(source);
+                type = bitBoard.typeAt(source);
+            }
+            if (this.isValid(game, bitBoard, canCapture, player, type, source, destination)) {
+                mask[i >>> 6] |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Validate one packed move, e.g. a move remembered from another position.
+     *
+     * @param game the current game object
+     * @param move the packed move to validate, whose capture flag is ignored
+     * @return whether the move is valid
+     */
+    public boolean isValid(Game game, int move) {
+        var bitBoard = game.getBitBoard();
+        var numSquares = bitBoard.getSize() * bitBoard.getSize();
+        var source = MoveList.source(move);
+        var destination = MoveList.destination(move);
+        return source < numSquares && destination < numSquares
+                && this.isValid(game, bitBoard, game.getNumMoves() >= numMovesProtection,
+                bitBoard.ownerAt(source), bitBoard.typeAt(source), source, destination);
+    }
+
+    /**
+     * Check all rules for a move inside the board on the bitboard.
+     *
+     * @param player owner of the piece on the source, or -1 if it is unknown
+     * @param type   type of the piece on the source, or -1 if it is unknown
+     */
+    private boolean isValid(Game game, BitBoard bitBoard, boolean canCapture, int player, int type,
+                            int source, int destination) {
+        var occupied = bitBoard.getOccupied();
+        if (!BitBoard.contains(occupied, source) || source == destination) {
+            return false;
+        }
+        if (player < 0 || type < 0) {
+            // another kind of piece, which only its rule objects know
+            return this.validateInOrder(game, game.toMove(MoveList.encode(source, destination, false))) == null;
+        }
+        var capture = BitBoard.contains(occupied, destination);
+        if (capture && (!canCapture || bitBoard.ownerAt(destination) == player)) {
+            return false;
+        }
+        var size = bitBoard.getSize();
+        var dx = bitBoard.x(destination) - bitBoard.x(source);
+        var dy = bitBoard.y(destination) - bitBoard.y(source);
+        if (type == BitBoard.KNIGHT) {
+            if (Math.abs(dx) == 2 && Math.abs(dy) == 1) {
+                return !BitBoard.contains(occupied, source + dx / 2 * size);
+            } else if (Math.abs(dx) == 1 && Math.abs(dy) == 2) {
+                return !BitBoard.contains(occupied, source + dy / 2);
+            }
+            return false;
+        }
+        // archer
+        int stride;
+        int distance;
+        if (dx == 0) {
+            stride = Integer.signum(dy);
+            distance = Math.abs(dy);
+        } else if (dy == 0) {
+            stride = Integer.signum(dx) * size;
+            distance = Math.abs(dx);
+        } else {
+            return false;
+        }
+        var numPieces = 0;
+        for (int i = 1, square = source + stride; i < distance; i++, square += stride) {
+            if (BitBoard.contains(occupied, square) && ++numPieces > 1) {
+                return false;
+            }
+        }
+        return capture ? numPieces == 1 : numPieces == 0;
+    }
+
+    /**
+     * @return the rules in the order used for error messages
+     */
+    public Rule[] getRules() {
+        return rules.clone();
+    }
+
+    public int getNumMovesProtection() {
+        return numMovesProtection;
+    }
+
+    public boolean isTiming() {
+        return timing;
+    }
+
+    /**
+     * @param timing whether to count the time spent in each rule, which slows down validation
+     */
+    public void setTiming(boolean timing) {
+        this.timing = timing;
+    }
+
+    /**
+     * @param rule a rule of {@link RuleEngine#getRules()}
+     * @return number of times the rule is checked while timing
+     */
+    public long getChecks(Rule rule) {
+        return checks.get(this.indexOf(rule));
+    }
+
+    /**
+     * @param rule a rule of {@link RuleEngine#getRules()}
+     * @return nanoseconds spent in the rule while timing
+     */
+    public long getNanos(Rule rule) {
+        return nanos.get(this.indexOf(rule));
+    }
+
+    private int indexOf(Rule rule) {
+        for (int i = 0; i < rules.length; i++) {
+            if (rules[i] == rule) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("rule is not part of the engine");
+    }
+
+    /**
+     * Reset the time counters.
+     */
+    public void resetTiming() {
+        for (int i = 0; i < rules.length; i++) {
+            checks.set(i, 0);
+            nanos.set(i, 0);
+        }
+    }
+
+    /**
+     * @return one line per rule with the number of checks, total time and average time while timing, and the current
+     * order of checks of each piece type
+     */
+    @Override
+    public String toString() {
+        var builder = new StringBuilder();
+        for (int i = 0; i < rules.length; i++) {
+            var count = checks.get(i);
+            builder.append(String.format("%-26s checks %10d, time %8dus, average %6dns%n",
+                    rules[i].getClass().getSimpleName(), count, nanos.get(i) / 1000,
+                    count == 0 ? 0 : nanos.get(i) / count));
+        }
+        builder.append("knight order ").append(this.describe(orders.get(BitBoard.KNIGHT)))
+                .append(", archer order ").append(this.describe(orders.get(BitBoard.ARCHER)));
+        return builder.toString();
+    }
+
+    /**
+     * Rejection counts of one thread
+     */
+    private static final class Counters {
+        /**
+         * Number of validations of each piece type since the last reordering
+         */
+        private final int[] validations = new int[BitBoard.NUM_TYPES];
+
+        /**
+         * Number of rejections of each rule, halved at every reordering
+         */
+        private final long[] rejections;
+
+        private Counters(int numRules) {
+            this.rejections = new long[numRules];
+        }
+    }
+
+    private String describe(int[] order) {
+        var names = new String[order.length];
+        for (int i = 0; i < order.length; i++) {
+            names[i] = rules[order[i]].getClass().getSimpleName();
+        }
+        return Arrays.toString(names);
+    }
+}
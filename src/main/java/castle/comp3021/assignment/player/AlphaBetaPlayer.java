@@ -0,0 +1,83 @@
+package castle.comp3021.assignment.player;
+
+import castle.comp3021.assignment.gui.DurationTimer;
+import castle.comp3021.assignment.protocol.Color;
+import castle.comp3021.assignment.protocol.Game;
+import castle.comp3021.assignment.protocol.MoveList;
+import castle.comp3021.assignment.search.ParallelSearch;
+import castle.comp3021.assignment.search.Search;
+import castle.comp3021.assignment.search.SearchResult;
+import castle.comp3021.assignment.search.TranspositionTable;
+import castle.comp3021.assignment.textversion.JesonMor;
+
+/**
+ * A computer player that searches the game tree with iterative deepening alpha-beta (see {@link Search}).
+ * <p>
+ * By default the search stops within the time of each round given by {@link DurationTimer#getDefaultEachRound()},
+ * returning the best move of the deepest completed iteration. With more than one search thread, the threads search
+ * the same position sharing the transposition table (see {@link ParallelSearch}).
+ */
+public class AlphaBetaPlayer extends SearchingPlayer {
+    /**
+     * Maximum search depth
+     */
+    private int maxDepth = Search.MAX_PLY;
+
+    /**
+     * Search with its transposition table, created on first use with the hash size from the game configuration
+     */
+    private ParallelSearch search;
+
+    /**
+     * Result of the last search
+     */
+    private SearchResult lastResult;
+
+    public AlphaBetaPlayer(String name, Color color) {
+        super(name, color);
+    }
+
+    public AlphaBetaPlayer(String name) {
+        this(name, Color.YELLOW);
+    }
+
+    @Override
+    protected int search(JesonMor game, MoveList availableMoves) {
+        lastResult = this.getSearch(game).search(game, maxDepth, this.getTimeLimit(),
+                this.isVerbose() ? result -> System.out.println(this.name + ": " + result.format(game)) : null);
+        return lastResult.getBestMove() < 0 ? availableMoves.get(0) : lastResult.getBestMove();
+    }
+
+    private ParallelSearch getSearch(Game game) {
+        if (search == null) {
+            search = new ParallelSearch(new TranspositionTable(game.getConfiguration().getHashSize()),
+                    this.getNumThreads());
+        } else if (search.getNumThreads() != this.getNumThreads()) {
+            search.shutdown();
+            search = new ParallelSearch(search.getTable(), this.getNumThreads());
+        }
+        return search;
+    }
+
+    @Override
+    public void shutdown() {
+        if (search != null) {
+            search.shutdown();
+        }
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * @return result of the last search, including depth reached, nodes per second and principal variation
+     */
+    public SearchResult getLastResult() {
+        return lastResult;
+    }
+}
@@ -0,0 +1,77 @@
+package castle.comp3021.assignment.player;
+
+import castle.comp3021.assignment.gui.DurationTimer;
+import castle.comp3021.assignment.protocol.Color;
+import castle.comp3021.assignment.protocol.MoveList;
+import castle.comp3021.assignment.search.MonteCarloTreeSearch;
+import castle.comp3021.assignment.textversion.JesonMor;
+
+/**
+ * A computer player that chooses moves by Monte Carlo tree search (see {@link MonteCarloTreeSearch}).
+ * <p>
+ * The search stops when the time limit or the playout limit is reached; by default it uses the time of each round
+ * given by {@link DurationTimer#getDefaultEachRound()}. The tree is kept from one move to the next.
+ */
+public class MonteCarloPlayer extends SearchingPlayer {
+    /**
+     * Maximum number of playouts of each move, or 0 for no limit
+     */
+    private long maxPlayouts = 0;
+
+    /**
+     * Search with its tree, created on first use
+     */
+    private MonteCarloTreeSearch search;
+
+    public MonteCarloPlayer(String name, Color color) {
+        super(name, color);
+    }
+
+    public MonteCarloPlayer(String name) {
+        this(name, Color.PURPLE);
+    }
+
+    @Override
+    protected int search(JesonMor game, MoveList availableMoves) {
+        var search = this.getSearch();
+        // with a playout limit only, the time of each round does not apply
+        var limit = maxPlayouts > 0 && !this.hasTimeLimit() ? 0 : this.getTimeLimit();
+        var move = search.search(game, limit, maxPlayouts);
+        if (this.isVerbose()) {
+            System.out.println(this.name + ": " + search);
+        }
+        return move < 0 ? availableMoves.get(0) : move;
+    }
+
+    private MonteCarloTreeSearch getSearch() {
+        if (search == null) {
+            search = new MonteCarloTreeSearch(this.getNumThreads());
+        } else if (search.getNumThreads() != this.getNumThreads()) {
+            search.shutdown();
+            search = new MonteCarloTreeSearch(this.getNumThreads());
+        }
+        return search;
+    }
+
+    @Override
+    public void shutdown() {
+        if (search != null) {
+            search.shutdown();
+        }
+    }
+
+    public long getMaxPlayouts() {
+        return maxPlayouts;
+    }
+
+    public void setMaxPlayouts(long maxPlayouts) {
+        this.maxPlayouts = maxPlayouts;
+    }
+
+    /**
+     * @return number of playouts per second of the last search, or 0 before the first search
+     */
+    public long getPlayoutsPerSecond() {
+        return search == null ? 0 : search.getPlayoutsPerSecond();
+    }
+}
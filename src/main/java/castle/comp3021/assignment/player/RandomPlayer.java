@@ -3,7 +3,7 @@ package castle.comp3021.assignment.player;
 import castle.comp3021.assignment.protocol.*;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * A computer player that makes a move randomly.
@@ -19,7 +19,12 @@ public class RandomPlayer extends Player {
 
     @Override
     public @NotNull Move nextMove(Game game, Move[] availableMoves) {
-        int index = new Random().nextInt(availableMoves.length);
+        int index = ThreadLocalRandom.current().nextInt(availableMoves.length);
         return availableMoves[index];
     }
+
+    @Override
+    public int nextMove(Game game, MoveList availableMoves) {
+        return availableMoves.get(ThreadLocalRandom.current().nextInt(availableMoves.size()));
+    }
 }
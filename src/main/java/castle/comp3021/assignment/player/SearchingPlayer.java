@@ -0,0 +1,121 @@
+package castle.comp3021.assignment.player;
+
+import castle.comp3021.assignment.gui.DurationTimer;
+import castle.comp3021.assignment.protocol.Color;
+import castle.comp3021.assignment.protocol.Game;
+import castle.comp3021.assignment.protocol.Move;
+import castle.comp3021.assignment.protocol.MoveList;
+import castle.comp3021.assignment.protocol.Player;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A computer player that searches for its moves within a time limit, possibly on several threads.
+ * <p>
+ * The search runs in place on copies of a {@link JesonMor}; in any other game, the player picks a random move.
+ * By default the time limit is the time of each round given by {@link DurationTimer#getDefaultEachRound()}, less a
+ * safety margin, and the search uses one thread per available processor.
+ */
+public abstract class SearchingPlayer extends Player {
+    /**
+     * Time kept in reserve from the time of each round, in milliseconds
+     */
+    private static final long SAFETY_MARGIN = 200;
+
+    /**
+     * Time limit of each move in milliseconds, or 0 to derive it from {@link DurationTimer#getDefaultEachRound()}
+     */
+    private long timeLimit = 0;
+
+    /**
+     * Number of search threads, one per available processor by default
+     */
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Whether to print the statistics of each search
+     */
+    private boolean verbose = false;
+
+    public SearchingPlayer(String name, Color color) {
+        super(name, color);
+    }
+
+    @Override
+    public @NotNull Move nextMove(Game game, Move[] availableMoves) {
+        if (!(game instanceof JesonMor)) {
+            return availableMoves[ThreadLocalRandom.current().nextInt(availableMoves.length)];
+        }
+        var moves = new MoveList();
+        game.getAvailableMoves(game.getCurrentPlayer(), moves);
+        return game.toMove(this.nextMove(game, moves));
+    }
+
+    @Override
+    public int nextMove(Game game, MoveList availableMoves) {
+        if (!(game instanceof JesonMor)) {
+            return availableMoves.get(ThreadLocalRandom.current().nextInt(availableMoves.size()));
+        }
+        return this.search((JesonMor) game, availableMoves);
+    }
+
+    /**
+     * Search for the next move.
+     *
+     * @param game           the game, which must not be changed
+     * @param availableMoves the available moves of this player, not empty
+     * @return the chosen move in packed form
+     */
+    protected abstract int search(JesonMor game, MoveList availableMoves);
+
+    /**
+     * Shut down the search threads, e.g. when the player is not used any more. The next search creates them again.
+     */
+    public abstract void shutdown();
+
+    /**
+     * @return time limit of each move in milliseconds
+     */
+    public long getTimeLimit() {
+        if (timeLimit > 0) {
+            return timeLimit;
+        }
+        var budget = DurationTimer.getDefaultEachRound() * 1000L;
+        return Math.max(budget / 2, budget - SAFETY_MARGIN);
+    }
+
+    public void setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * @return whether the time limit is set explicitly rather than derived from the time of each round
+     */
+    protected boolean hasTimeLimit() {
+        return timeLimit > 0;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * @param numThreads number of search threads, at least 1
+     */
+    public void setNumThreads(int numThreads) {
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException("number of search threads must be positive");
+        }
+        this.numThreads = numThreads;
+    }
+
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+}
@@ -1,22 +1,48 @@
 package castle.comp3021.assignment.player;
 
+import castle.comp3021.assignment.protocol.BitBoard;
 import castle.comp3021.assignment.protocol.Color;
 import castle.comp3021.assignment.protocol.Game;
 import castle.comp3021.assignment.protocol.Move;
+import castle.comp3021.assignment.protocol.MoveList;
 import castle.comp3021.assignment.protocol.Player;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Random;
 
-import castle.comp3021.assignment.protocol.*;
-import org.jetbrains.annotations.NotNull;
-
-import java.util.*;
-
 /**
  * A computer player that makes a move using smart strategy.
+ * <p>
+ * Every available move gets a weight from a cheap static score, and the move is drawn at random in proportion to the
+ * weights: captures (of knights more than of archers) and knights entering the central square are favoured, moves
+ * which win the game are almost always chosen, while moves to a square where an enemy archer can capture the piece and
+ * moves gaining much score are avoided. Scoring reuses a buffer of this player and does not allocate, so the player
+ * can also serve as a playout policy.
  */
 public class SmartRandomPlayer extends Player {
+    /* Move weights start */
+    private static final int BASE_WEIGHT = 16;
+    private static final int CAPTURE_KNIGHT_BONUS = 48;
+    private static final int CAPTURE_ARCHER_BONUS = 32;
+    private static final int ENTER_CENTER_BONUS = 32;
+    private static final int WINNING_WEIGHT = 1 << 16;
+    /**
+     * Weight of a move to an exposed square is divided by 2 to the power of this
+     */
+    private static final int EXPOSED_SHIFT = 2;
+    /* Move weights end */
+
+    /**
+     * Random generator of this player
+     */
+    private final Random random = new Random();
+
+    /**
+     * Buffers reused between calls
+     */
+    private final MoveList packedMoves = new MoveList();
+    private int[] weights = new int[64];
+
     public SmartRandomPlayer(String name, Color color) {
         super(name, color);
     }
@@ -37,8 +63,116 @@ public class SmartRandomPlayer extends Player {
      */
     @Override
     public @NotNull Move nextMove(Game game, Move[] availableMoves) {
-        //TODO: bonus only
-        int index = new Random().nextInt(availableMoves.length);
-        return availableMoves[index];
+        packedMoves.clear();
+        for (var move : availableMoves) {
+            packedMoves.add(game.toPackedMove(move));
+        }
+        return availableMoves[this.pick(game, packedMoves)];
+    }
+
+    @Override
+    public int nextMove(Game game, MoveList availableMoves) {
+        return availableMoves.get(this.pick(game, availableMoves));
+    }
+
+    /**
+     * Weigh the moves and draw one.
+     *
+     * @return index of the chosen move
+     */
+    private int pick(Game game, MoveList moves) {
+        if (weights.length < moves.size()) {
+            weights = new int[moves.size() * 2];
+        }
+        var bitBoard = game.getBitBoard();
+        var total = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            var weight = weigh(game, bitBoard, moves.get(i));
+            weights[i] = weight;
+            total += weight;
+        }
+        var target = random.nextInt(total);
+        for (int i = 0; i < moves.size(); i++) {
+            target -= weights[i];
+            if (target < 0) {
+                return i;
+            }
+        }
+        return moves.size() - 1;
+    }
+
+    /**
+     * Statically score a move.
+     *
+     * @return positive weight of the move
+     */
+    private static int weigh(Game game, BitBoard bitBoard, int move) {
+        var source = MoveList.source(move);
+        var destination = MoveList.destination(move);
+        var player = bitBoard.ownerAt(source);
+        var enemy = 1 - player;
+        var isKnight = bitBoard.typeAt(source) == BitBoard.KNIGHT;
+        var center = bitBoard.square(game.getCentralPlace());
+        var canWin = game.getNumMoves() + 1 > game.getConfiguration().getNumMovesProtection();
+
+        if (canWin && isKnight && source == center && destination != center) {
+            return WINNING_WEIGHT;
+        }
+        var weight = BASE_WEIGHT;
+        if (MoveList.isCapture(move)) {
+            if (canWin && bitBoard.count(enemy) == 1) {
+                return WINNING_WEIGHT;
+            }
+            weight += bitBoard.typeAt(destination) == BitBoard.KNIGHT ? CAPTURE_KNIGHT_BONUS : CAPTURE_ARCHER_BONUS;
+        }
+        if (isKnight && destination == center) {
+            weight += ENTER_CENTER_BONUS;
+        }
+        // the score of a player only grows, and the lower score wins when a player has no move
+        var size = bitBoard.getSize();
+        weight -= Math.abs(bitBoard.x(source) - bitBoard.x(destination))
+                + Math.abs(bitBoard.y(source) - bitBoard.y(destination));
+        // the enemy may capture in its next move
+        if (game.getNumMoves() + 1 >= game.getConfiguration().getNumMovesProtection()
+                && isExposed(bitBoard, size, source, destination, enemy)) {
+            weight >>= EXPOSED_SHIFT;
+        }
+        return Math.max(1, weight);
+    }
+
+    /**
+     * Check whether an enemy archer could capture a piece moved from {@code source} to {@code destination}, i.e.
+     * whether there is an enemy archer in the same row or column with exactly one piece in between.
+     */
+    private static boolean isExposed(BitBoard bitBoard, int size, int source, int destination, int enemy) {
+        var x = bitBoard.x(destination);
+        var y = bitBoard.y(destination);
+        return isExposed(bitBoard, source, destination, -size, x, enemy)
+                || isExposed(bitBoard, source, destination, size, size - 1 - x, enemy)
+                || isExposed(bitBoard, source, destination, -1, y, enemy)
+                || isExposed(bitBoard, source, destination, 1, size - 1 - y, enemy);
+    }
+
+    /**
+     * Scan a ray from {@code destination}, treating {@code source} as empty.
+     *
+     * @param step   difference of square indexes between neighbours on the ray
+     * @param length number of squares on the ray
+     */
+    private static boolean isExposed(BitBoard bitBoard, int source, int destination, int step, int length,
+                                     int enemy) {
+        var screened = false;
+        var square = destination;
+        for (int i = 0; i < length; i++) {
+            square += step;
+            if (square == source || !bitBoard.isOccupied(square)) {
+                continue;
+            }
+            if (screened) {
+                return bitBoard.ownerAt(square) == enemy && bitBoard.typeAt(square) == BitBoard.ARCHER;
+            }
+            screened = true;
+        }
+        return false;
     }
 }
@@ -0,0 +1,249 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.KnightTables;
+
+import java.util.Arrays;
+
+/**
+ * Number of pieces of each player attacking each square, indexed as in {@link BitBoard}.
+ * <p>
+ * A knight attacks the destinations of its knight moves whose leg is empty, and an archer attacks the squares beyond
+ * the first piece (the screen) on its rank and file, up to and including the next piece. That is, a square is attacked
+ * by a piece if the piece could capture an enemy piece standing there, whatever stands there now and whether captures
+ * are allowed yet.
+ * <p>
+ * The counts are updated incrementally around every change of the board: {@link AttackMap#remove(BitBoard, int, int)}
+ * takes away the attacks of the pieces which may be affected by a change of two squares, and
+ * {@link AttackMap#add(BitBoard, int, int)} puts them back after the change. The affected pieces are the pieces on the
+ * two squares, knights next to them, whose leg may be there, and archers on their ranks and files. Queries take
+ * constant time.
+ */
+public class AttackMap implements Cloneable {
+    private final int size;
+
+    /**
+     * Attack counts indexed by player and square
+     */
+    private int[][] counts;
+
+    /**
+     * Affected squares of the current change, collected without duplicates
+     */
+    private int[] affected;
+    private int numAffected = 0;
+    private long[] marked;
+
+    public AttackMap(int size) {
+        this.size = size;
+        this.counts = new int[BitBoard.NUM_PLAYERS][size * size];
+        // the two squares, their neighbours and their ranks and files
+        this.affected = new int[10 + 4 * size];
+        this.marked = new long[(size * size + 63) >>> 6];
+    }
+
+    /**
+     * Build the attack map of a bitboard.
+     *
+     * @param bitBoard the bitboard
+     * @return the attack map
+     */
+    public static AttackMap of(BitBoard bitBoard) {
+        var attackMap = new AttackMap(bitBoard.getSize());
+        var occupied = bitBoard.getOccupied();
+        for (int square = BitBoard.nextSquare(occupied, 0); square >= 0; square = BitBoard.nextSquare(occupied, square + 1)) {
+            attackMap.update(bitBoard, square, 1);
+        }
+        return attackMap;
+    }
+
+    /**
+     * Take away the attacks of the pieces affected by a change of two squares, before the change is made.
+     *
+     * @param bitBoard the bitboard before the change
+     * @param first    a square to change
+     * @param second   another square to change, may be the same
+     */
+    public void remove(BitBoard bitBoard, int first, int second) {
+        this.collect(bitBoard, first, second);
+        for (int i = 0; i < numAffected; i++) {
+            this.update(bitBoard, affected[i], -1);
+        }
+    }
+
+    /**
+     * Put back the attacks of the pieces affected by a change of two squares, after the change is made.
+     *
+     * @param bitBoard the bitboard after the change
+     * @param first    a changed square
+     * @param second   another changed square, may be the same
+     */
+    public void add(BitBoard bitBoard, int first, int second) {
+        this.collect(bitBoard, first, second);
+        for (int i = 0; i < numAffected; i++) {
+            this.update(bitBoard, affected[i], 1);
+        }
+    }
+
+    /**
+     * Collect the occupied squares whose attacks may depend on the two squares.
+     */
+    private void collect(BitBoard bitBoard, int first, int second) {
+        for (int i = 0; i < numAffected; i++) {
+            marked[affected[i] >>> 6] = 0;
+        }
+        numAffected = 0;
+        this.collect(bitBoard, first);
+        this.collect(bitBoard, second);
+    }
+
+    private void collect(BitBoard bitBoard, int square) {
+        var occupied = bitBoard.getOccupied();
+        var knights = bitBoard.getTypeOccupancy(BitBoard.KNIGHT);
+        var archers = bitBoard.getTypeOccupancy(BitBoard.ARCHER);
+        if (BitBoard.contains(occupied, square)) {
+            this.mark(square);
+        }
+        var x = bitBoard.x(square);
+        var y = bitBoard.y(square);
+        if (x > 0 && BitBoard.contains(knights, square - size)) {
+            this.mark(square - size);
+        }
+        if (x < size - 1 && BitBoard.contains(knights, square + size)) {
+            this.mark(square + size);
+        }
+        if (y > 0 && BitBoard.contains(knights, square - 1)) {
+            this.mark(square - 1);
+        }
+        if (y < size - 1 && BitBoard.contains(knights, square + 1)) {
+            this.mark(square + 1);
+        }
+        for (int i = 0; i < size; i++) {
+            var file = x * size + i;
+            if (BitBoard.contains(archers, file)) {
+                this.mark(file);
+            }
+            var rank = i * size + y;
+            if (BitBoard.contains(archers, rank)) {
+                this.mark(rank);
+            }
+        }
+    }
+
+    private void mark(int square) {
+        if (BitBoard.contains(marked, square)) {
+            return;
+        }
+        marked[square >>> 6] |= 1L << square;
+        affected[numAffected++] = square;
+    }
+
+    /**
+     * Add or take away the attacks of the piece on a square.
+     *
+     * @param delta 1 to add, -1 to take away
+     */
+    private void update(BitBoard bitBoard, int square, int delta) {
+        var player = bitBoard.ownerAt(square);
+        if (player < 0) {
+            return;
+        }
+        var attacks = counts[player];
+        var occupied = bitBoard.getOccupied();
+        switch (bitBoard.typeAt(square)) {
+            case BitBoard.KNIGHT: {
+                var tables = KnightTables.of(size);
+                for (int entry = tables.start(square); entry < tables.end(square); entry++) {
+                    if (!BitBoard.contains(occupied, tables.leg(entry))) {
+                        attacks[tables.target(entry)] += delta;
+                    }
+                }
+                break;
+            }
+            case BitBoard.ARCHER: {
+                var x = bitBoard.x(square);
+                var y = bitBoard.y(square);
+                this.updateRay(occupied, attacks, square, -size, x, delta);
+                this.updateRay(occupied, attacks, square, size, size - 1 - x, delta);
+                this.updateRay(occupied, attacks, square, -1, y, delta);
+                this.updateRay(occupied, attacks, square, 1, size - 1 - y, delta);
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Update the squares of a ray beyond the screen, up to and including the next piece.
+     *
+     * @param step   difference of square indexes between neighbours on the ray
+     * @param length number of squares on the ray
+     */
+    private void updateRay(long[] occupied, int[] attacks, int square, int step, int length, int delta) {
+        var screened = false;
+        for (int i = 0; i < length; i++) {
+            square += step;
+            var isOccupied = BitBoard.contains(occupied, square);
+            if (screened) {
+                attacks[square] += delta;
+                if (isOccupied) {
+                    return;
+                }
+            } else if (isOccupied) {
+                screened = true;
+            }
+        }
+    }
+
+    /**
+     * @param player index of the attacking player
+     * @param square the square
+     * @return number of pieces of the player attacking the square
+     */
+    public int getAttackers(int player, int square) {
+        return counts[player][square];
+    }
+
+    /**
+     * @param player index of the attacking player
+     * @param square the square
+     * @return whether a piece of the player attacks the square
+     */
+    public boolean isAttacked(int player, int square) {
+        return counts[player][square] > 0;
+    }
+
+    /**
+     * @param player index of the player who wants to put a piece on the square
+     * @param square the square
+     * @return whether no piece of the opponent attacks the square
+     */
+    public boolean isSafe(int player, int square) {
+        return counts[1 - player][square] == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AttackMap that = (AttackMap) o;
+        return size == that.size && Arrays.deepEquals(counts, that.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.deepHashCode(counts);
+    }
+
+    @Override
+    public AttackMap clone() throws CloneNotSupportedException {
+        var cloned = (AttackMap) super.clone();
+        cloned.counts = new int[BitBoard.NUM_PLAYERS][];
+        for (int i = 0; i < BitBoard.NUM_PLAYERS; i++) {
+            cloned.counts[i] = this.counts[i].clone();
+        }
+        cloned.affected = this.affected.clone();
+        cloned.marked = this.marked.clone();
+        return cloned;
+    }
+}
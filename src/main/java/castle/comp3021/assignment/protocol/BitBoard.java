@@ -0,0 +1,466 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard representation of the pieces on a gameboard.
+ * <p>
+ * Every {@link Place} (x, y) is mapped to the square index {@code x * size + y}, which is the same order as scanning
+ * {@link Game#board} column by column. A set of squares is stored as a {@code long[]} with one bit per square, so the
+ * largest 26x26 board needs 11 words.
+ * <p>
+ * Occupancy is kept per player, indexed by the order of {@link Configuration#getPlayers()}, and per piece type.
+ * The {@link Zobrist} key of the pieces and the number of pieces of each player are updated together with the
+ * occupancy.
+ * <p>
+ * The squares of the pieces of each player are also kept in a dense list, with a back-pointer from each square to its
+ * index in the list, so that the pieces of a player are visited in time proportional to their number. A moved piece
+ * keeps its index, a removed piece is replaced by the last one of the list, and
+ * {@link BitBoard#put(int, int, int, int)} reverses a removal, so that undoing moves restores the order.
+ */
+public class BitBoard implements Cloneable {
+    /**
+     * Piece type index of {@link Knight}
+     */
+    public static final int KNIGHT = 0;
+
+    /**
+     * Piece type index of {@link Archer}
+     */
+    public static final int ARCHER = 1;
+
+    /**
+     * Number of piece types which have their own occupancy set
+     */
+    public static final int NUM_TYPES = 2;
+
+    /**
+     * Number of players which have their own occupancy set
+     */
+    public static final int NUM_PLAYERS = 2;
+
+    /**
+     * Size of the gameboard
+     */
+    private final int size;
+
+    /**
+     * Number of {@code long} words in one set of squares
+     */
+    private final int numWords;
+
+    /**
+     * All occupied squares
+     */
+    private long[] occupied;
+
+    /**
+     * Occupied squares of each player
+     */
+    private long[][] players;
+
+    /**
+     * Occupied squares of each piece type
+     */
+    private long[][] types;
+
+    /**
+     * Number of pieces of each player
+     */
+    private int[] counts;
+
+    /**
+     * Squares of the pieces of each player; only the first {@code counts[player]} entries are in use
+     */
+    private int[][] pieces;
+
+    /**
+     * Index of the piece on each square in the list of its owner
+     */
+    private int[] pieceIndexes;
+
+    /**
+     * Zobrist keys of this board size
+     */
+    private final Zobrist zobrist;
+
+    /**
+     * Zobrist key of all pieces on board, not including the side to move
+     */
+    private long key = 0;
+
+    public BitBoard(int size) {
+        this.size = size;
+        this.zobrist = Zobrist.of(size);
+        this.numWords = (size * size + 63) >>> 6;
+        this.occupied = new long[numWords];
+        this.players = new long[NUM_PLAYERS][numWords];
+        this.types = new long[NUM_TYPES][numWords];
+        this.counts = new int[NUM_PLAYERS];
+        this.pieces = new int[NUM_PLAYERS][size * size];
+        this.pieceIndexes = new int[size * size];
+    }
+
+    /**
+     * Build the bitboard of a game board.
+     *
+     * @param size          size of the gameboard
+     * @param board         the board to read pieces from, may be null for an empty board
+     * @param configPlayers the players of the game, whose order decides the player index
+     * @return the bitboard
+     */
+    public static BitBoard of(int size, Piece[][] board, Player[] configPlayers) {
+        var bitBoard = new BitBoard(size);
+        if (board == null) {
+            return bitBoard;
+        }
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                var piece = board[x][y];
+                if (piece != null) {
+                    bitBoard.put(bitBoard.square(x, y), indexOf(configPlayers, piece.getPlayer()), typeOf(piece));
+                }
+            }
+        }
+        return bitBoard;
+    }
+
+    /**
+     * Get the index of a player among the players of a game.
+     *
+     * @param configPlayers players of the game
+     * @param player        the player to look for
+     * @return the index, or -1 if the player is not in the game
+     */
+    public static int indexOf(Player[] configPlayers, Player player) {
+        for (int i = 0; i < configPlayers.length; i++) {
+            if (configPlayers[i] == player) {
+                return i;
+            }
+        }
+        for (int i = 0; i < configPlayers.length; i++) {
+            if (configPlayers[i].equals(player)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the type index of a piece.
+     *
+     * @param piece the piece
+     * @return {@link #KNIGHT}, {@link #ARCHER}, or -1 for other kinds of pieces
+     */
+    public static int typeOf(Piece piece) {
+        if (piece instanceof Knight) {
+            return KNIGHT;
+        } else if (piece instanceof Archer) {
+            return ARCHER;
+        }
+        return -1;
+    }
+
+    /* Square helpers start */
+    public int square(int x, int y) {
+        return x * size + y;
+    }
+
+    public int square(Place place) {
+        return square(place.x(), place.y());
+    }
+
+    public int x(int square) {
+        return square / size;
+    }
+
+    public int y(int square) {
+        return square % size;
+    }
+    /* Square helpers end */
+
+    /**
+     * Put a piece on an empty square.
+     *
+     * @param square the square
+     * @param player index of the owner, ignored if negative
+     * @param type   type index of the piece, ignored if negative
+     */
+    public void put(int square, int player, int type) {
+        var word = square >>> 6;
+        var bit = 1L << square;
+        occupied[word] |= bit;
+        if (player >= 0 && player < NUM_PLAYERS) {
+            players[player][word] |= bit;
+            pieces[player][counts[player]] = square;
+            pieceIndexes[square] = counts[player];
+            counts[player]++;
+        }
+        if (type >= 0 && type < NUM_TYPES) {
+            types[type][word] |= bit;
+        }
+        key ^= zobrist.piece(player, type, square);
+    }
+
+    /**
+     * Put a piece on an empty square at a given index of the list of its owner, reversing
+     * {@link BitBoard#clear(int)}: the piece at that index moves to the end of the list.
+     *
+     * @param square the square
+     * @param player index of the owner, ignored if negative
+     * @param type   type index of the piece, ignored if negative
+     * @param index  index of the piece in the list of its owner, as returned by {@link BitBoard#pieceIndexAt(int)}
+     *               before it was removed
+     */
+    public void put(int square, int player, int type, int index) {
+        this.put(square, player, type);
+        if (player < 0 || player >= NUM_PLAYERS || index >= counts[player] - 1) {
+            return;
+        }
+        var list = pieces[player];
+        var last = counts[player] - 1;
+        var displaced = list[index];
+        list[index] = square;
+        pieceIndexes[square] = index;
+        list[last] = displaced;
+        pieceIndexes[displaced] = last;
+    }
+
+    /**
+     * Remove whatever piece is on a square.
+     *
+     * @param square the square
+     */
+    public void clear(int square) {
+        if (!isOccupied(square)) {
+            return;
+        }
+        var player = ownerAt(square);
+        key ^= zobrist.piece(player, typeAt(square), square);
+        if (player >= 0) {
+            // the last piece of the list takes the place of the removed one
+            var list = pieces[player];
+            var last = list[--counts[player]];
+            list[pieceIndexes[square]] = last;
+            pieceIndexes[last] = pieceIndexes[square];
+        }
+        var word = square >>> 6;
+        var mask = ~(1L << square);
+        occupied[word] &= mask;
+        for (var set : players) {
+            set[word] &= mask;
+        }
+        for (var set : types) {
+            set[word] &= mask;
+        }
+    }
+
+    /**
+     * Move the piece on one square to another, removing the piece captured on the destination if any.
+     *
+     * @param source      source square
+     * @param destination destination square
+     */
+    public void move(int source, int destination) {
+        var player = ownerAt(source);
+        var type = typeAt(source);
+        clear(destination);
+        var index = pieceIndexes[source];
+        clear(source);
+        put(destination, player, type, index);
+    }
+
+    /**
+     * @param square the square
+     * @return index of the owner of the piece on the square, or -1 if it is empty or the owner is unknown
+     */
+    public int ownerAt(int square) {
+        for (int i = 0; i < NUM_PLAYERS; i++) {
+            if (contains(players[i], square)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param square the square
+     * @return type index of the piece on the square, or -1 if it is empty or of another type
+     */
+    public int typeAt(int square) {
+        for (int i = 0; i < NUM_TYPES; i++) {
+            if (contains(types[i], square)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param square an occupied square
+     * @return index of the piece on the square in {@link BitBoard#getPieces(int)} of its owner, which is meaningless
+     * if the owner is unknown
+     */
+    public int pieceIndexAt(int square) {
+        return pieceIndexes[square];
+    }
+
+    public boolean isOccupied(int square) {
+        return contains(occupied, square);
+    }
+
+    /**
+     * Count the pieces of a player, in constant time.
+     *
+     * @param player index of the player
+     * @return number of pieces
+     */
+    public int count(int player) {
+        return counts[player];
+    }
+
+    /**
+     * Count the pieces of a player with a given type.
+     *
+     * @param player index of the player
+     * @param type   type index of the pieces
+     * @return number of pieces
+     */
+    public int count(int player, int type) {
+        var count = 0;
+        for (int i = 0; i < numWords; i++) {
+            count += Long.bitCount(players[player][i] & types[type][i]);
+        }
+        return count;
+    }
+
+    /* Getters start */
+    public int getSize() {
+        return size;
+    }
+
+    public Zobrist getZobrist() {
+        return zobrist;
+    }
+
+    /**
+     * @return Zobrist key of all pieces on board, not including the side to move
+     */
+    public long getKey() {
+        return key;
+    }
+
+    public long[] getOccupied() {
+        return occupied;
+    }
+
+    public long[] getPlayerOccupancy(int player) {
+        return players[player];
+    }
+
+    public long[] getTypeOccupancy(int type) {
+        return types[type];
+    }
+
+    /**
+     * Get the squares of the pieces of a player, typically used as
+     * {@code for (int i = 0; i < count(player); i++) { var square = getPieces(player)[i]; ... }}.
+     *
+     * @param player index of the player
+     * @return the squares, of which only the first {@link BitBoard#count(int)} entries are in use
+     */
+    public int[] getPieces(int player) {
+        return pieces[player];
+    }
+    /* Getters end */
+
+    /* Set operations start */
+    public static boolean contains(long[] set, int square) {
+        return (set[square >>> 6] & (1L << square)) != 0;
+    }
+
+    public static int count(long[] set) {
+        var count = 0;
+        for (var word : set) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public static boolean isEmpty(long[] set) {
+        for (var word : set) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find the next square in a set, typically used as
+     * {@code for (int sq = nextSquare(set, 0); sq >= 0; sq = nextSquare(set, sq + 1))}.
+     *
+     * @param set  the set of squares
+     * @param from the square to start searching from (inclusive)
+     * @return the first square in the set not less than {@code from}, or -1 if there is none
+     */
+    public static int nextSquare(long[] set, int from) {
+        var index = from >>> 6;
+        if (index >= set.length) {
+            return -1;
+        }
+        var word = set[index] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (index << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++index == set.length) {
+                return -1;
+            }
+            word = set[index];
+        }
+    }
+    /* Set operations end */
+
+    /* Object methods start */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BitBoard that = (BitBoard) o;
+        return size == that.size &&
+                Arrays.equals(occupied, that.occupied) &&
+                Arrays.deepEquals(players, that.players) &&
+                Arrays.deepEquals(types, that.types);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(occupied) + Arrays.deepHashCode(players);
+    }
+
+    @Override
+    public BitBoard clone() throws CloneNotSupportedException {
+        var cloned = (BitBoard) super.clone();
+        cloned.occupied = this.occupied.clone();
+        cloned.players = new long[NUM_PLAYERS][];
+        for (int i = 0; i < NUM_PLAYERS; i++) {
+            cloned.players[i] = this.players[i].clone();
+        }
+        cloned.types = new long[NUM_TYPES][];
+        for (int i = 0; i < NUM_TYPES; i++) {
+            cloned.types[i] = this.types[i].clone();
+        }
+        cloned.counts = this.counts.clone();
+        cloned.pieces = new int[NUM_PLAYERS][];
+        for (int i = 0; i < NUM_PLAYERS; i++) {
+            cloned.pieces[i] = this.pieces[i].clone();
+        }
+        cloned.pieceIndexes = this.pieceIndexes.clone();
+        return cloned;
+    }
+    /* Object methods end */
+}
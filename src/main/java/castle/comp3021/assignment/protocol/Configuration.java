@@ -22,6 +22,17 @@ public class Configuration implements Cloneable {
     protected final static int DEFAULTSIZE = 9;
     protected final static int DEFAULTPROTECTMOVE = 1;
 
+    /**
+     * Default size of the transposition table of computer players in megabytes
+     */
+    public final static int DEFAULTHASHSIZE = 16;
+
+    /**
+     * Default number of moves without capture after which a game is adjudicated on scores, which is no limit, so that
+     * games follow the original rules unless a limit is asked for
+     */
+    public final static int DEFAULTNOCAPTURELIMIT = 0;
+
     /**
      * Size of game board.
      * The game board has equal size in width and height.
@@ -48,6 +59,17 @@ public class Configuration implements Cloneable {
 
     protected int numMovesProtection;
 
+    /**
+     * Size of the transposition table used by searching computer players, in megabytes.
+     */
+    protected int hashSize = DEFAULTHASHSIZE;
+
+    /**
+     * Number of moves without capture, counted once captures are allowed, after which the game ends and the player
+     * with lower score wins. 0 means no limit.
+     */
+    protected int noCaptureLimit = DEFAULTNOCAPTURELIMIT;
+
     /**
      * Constructor of configuration
      *
@@ -87,7 +109,7 @@ public class Configuration implements Cloneable {
             }
         }
         // calculate the central place
-        this.centralPlace = new Place(size / 2, size / 2);
+        this.centralPlace = Place.of(size / 2, size / 2);
     }
 
     public Configuration(int size, Player[] players) {
@@ -130,7 +152,7 @@ public class Configuration implements Cloneable {
     }
 
     public void addInitialPiece(Piece piece, int x, int y) {
-        this.addInitialPiece(piece, new Place(x, y));
+        this.addInitialPiece(piece, Place.of(x, y));
     }
 
     public int getSize() {
@@ -153,6 +175,28 @@ public class Configuration implements Cloneable {
         return numMovesProtection;
     }
 
+    public int getHashSize() {
+        return hashSize;
+    }
+
+    public void setHashSize(int hashSize) {
+        if (hashSize <= 0) {
+            throw new InvalidConfigurationError("size of transposition table must be positive");
+        }
+        this.hashSize = hashSize;
+    }
+
+    public int getNoCaptureLimit() {
+        return noCaptureLimit;
+    }
+
+    public void setNoCaptureLimit(int noCaptureLimit) {
+        if (noCaptureLimit < 0) {
+            throw new InvalidConfigurationError("limit of moves without capture cannot be negative");
+        }
+        this.noCaptureLimit = noCaptureLimit;
+    }
+
     @Override
     public Configuration clone() throws CloneNotSupportedException {
         var cloned = (Configuration) super.clone();
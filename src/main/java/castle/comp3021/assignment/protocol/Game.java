@@ -1,5 +1,7 @@
 package castle.comp3021.assignment.protocol;
 
+import castle.comp3021.assignment.protocol.event.GameEvent;
+import castle.comp3021.assignment.protocol.event.GameEventBus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -24,6 +26,13 @@ public abstract class Game implements Cloneable {
      */
     protected Piece[][] board;
 
+    /**
+     * Bitboard view of {@link Game#board}, keeping occupancy per player and per piece type.
+     * It must be kept in sync with {@link Game#board}: moves update it incrementally, and whenever the board array
+     * is replaced or filled from outside, {@link Game#syncBoard()} should be called.
+     */
+    protected BitBoard bitBoard;
+
     /**
      * Current player who is supposed to make a move.
      */
@@ -34,9 +43,21 @@ public abstract class Game implements Cloneable {
      */
     protected int numMoves = 0;
 
+    /**
+     * Bus of game events, or null if nobody listens. Copies made by {@link Game#clone()} have no bus, so that searching
+     * on them does not publish events.
+     */
+    protected GameEventBus eventBus;
+
+    /**
+     * Iterator reused by {@link Game#getFirstAvailableMove(Player)}, created on first use and not shared with copies
+     */
+    private MoveIterator moveIterator;
+
     public Game(Configuration configuration) {
         this.configuration = configuration;
         this.board = configuration.getInitialBoard();
+        this.syncBoard();
     }
 
     public Game() {
@@ -86,6 +107,74 @@ public abstract class Game implements Cloneable {
      */
     public abstract @NotNull Move[] getAvailableMoves(Player player);
 
+    /**
+     * Get all available moves of one player in packed form.
+     * The list is cleared first, and filled without creating objects if its capacity is large enough.
+     *
+     * @param player the player whose available moves to get
+     * @param moves  the list to fill
+     */
+    public abstract void getAvailableMoves(Player player, @NotNull MoveList moves);
+
+    /**
+     * Get the available captures of one player in packed form, without generating quiet moves.
+     * The list is cleared first.
+     *
+     * @param player the player whose available captures to get
+     * @param moves  the list to fill
+     */
+    public void getAvailableCaptures(Player player, @NotNull MoveList moves) {
+        moves.clear();
+        var index = this.getPlayerIndex(player);
+        if (index < 0) {
+            return;
+        }
+        var pieces = this.bitBoard.getPieces(index);
+        for (int i = 0; i < this.bitBoard.count(index); i++) {
+            var square = pieces[i];
+            this.board[this.bitBoard.x(square)][this.bitBoard.y(square)].getAvailableCaptures(this, square, moves);
+        }
+    }
+
+    /**
+     * Get the quiet moves among the available moves of a player, piece by piece.
+     *
+     * @param player the player whose quiet moves to get
+     * @param moves  the list to fill, which is cleared first
+     * @see Piece#getAvailableQuietMoves(Game, int, MoveList)
+     */
+    public void getAvailableQuietMoves(Player player, @NotNull MoveList moves) {
+        moves.clear();
+        var index = this.getPlayerIndex(player);
+        if (index < 0) {
+            return;
+        }
+        var pieces = this.bitBoard.getPieces(index);
+        for (int i = 0; i < this.bitBoard.count(index); i++) {
+            var square = pieces[i];
+            this.board[this.bitBoard.x(square)][this.bitBoard.y(square)].getAvailableQuietMoves(this, square, moves);
+        }
+    }
+
+    /**
+     * Get one available move of a player without generating all of them, e.g. for players which take the first
+     * available move. The moves are tried in the order of {@link MoveIterator}.
+     *
+     * @param player the player whose available move to get
+     * @return the packed move, or {@link MoveIterator#NONE} if the player has no available moves
+     */
+    public int getFirstAvailableMove(Player player) {
+        var index = this.getPlayerIndex(player);
+        if (index < 0) {
+            return MoveIterator.NONE;
+        }
+        if (this.moveIterator == null) {
+            this.moveIterator = new MoveIterator();
+        }
+        this.moveIterator.reset(this, index);
+        return this.moveIterator.next();
+    }
+
     /**
      * Refresh the output printed in the console, which shows the following things.
      * 1. the gameboard and pieces on it
@@ -100,7 +189,7 @@ public abstract class Game implements Cloneable {
             for (int col = 0; col < size; col++) {
                 var piece = this.getPiece(col, row);
                 if (piece == null) {
-                    if (this.getCentralPlace().equals(new Place(col, row))) {
+                    if (this.getCentralPlace().x() == col && this.getCentralPlace().y() == row) {
                         rowContent.add("x");
                     } else {
                         rowContent.add(".");
@@ -181,7 +270,7 @@ public abstract class Game implements Cloneable {
             for (int col = 0; col < size; col++) {
                 var piece = this.getPiece(col, row);
                 if (piece == null) {
-                    if (this.getCentralPlace().equals(new Place(col, row))) {
+                    if (this.getCentralPlace().x() == col && this.getCentralPlace().y() == row) {
                         rowContent.add("x");
                     } else {
                         rowContent.add(".");
@@ -242,7 +331,120 @@ public abstract class Game implements Cloneable {
     }
 
     public @Nullable Piece getPiece(int x, int y) {
-        return this.getPiece(new Place(x, y));
+        return this.board[x][y];
+    }
+
+    /**
+     * Rebuild the state derived from {@link Game#board}, e.g. {@link Game#bitBoard}.
+     * This should be called after the board is replaced or its pieces are put from outside of the game, for example
+     * through {@link Configuration#setAllInitialPieces()}.
+     */
+    public void syncBoard() {
+        this.bitBoard = BitBoard.of(this.configuration.getSize(), this.board, this.configuration.getPlayers());
+    }
+
+    public BitBoard getBitBoard() {
+        return bitBoard;
+    }
+
+    public GameEventBus getEventBus() {
+        return eventBus;
+    }
+
+    public void setEventBus(GameEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    /**
+     * Check whether events should be published, before creating them.
+     *
+     * @return whether the game has an event bus with subscribers
+     */
+    protected boolean hasEventSubscribers() {
+        return this.eventBus != null && this.eventBus.hasSubscribers();
+    }
+
+    /**
+     * Publish an event to the event bus, if there is one.
+     *
+     * @param event the event
+     */
+    protected void publish(GameEvent event) {
+        if (this.eventBus != null) {
+            this.eventBus.publish(event);
+        }
+    }
+
+    /**
+     * Get the Zobrist hash of the current position, covering every piece with its owner and square, and the side to
+     * move. It is maintained incrementally together with {@link Game#bitBoard}, so this takes constant time.
+     *
+     * @return the 64-bit position hash
+     */
+    public long getZobristKey() {
+        var key = this.bitBoard.getKey();
+        return this.getCurrentPlayerID() == 0 ? key : key ^ this.bitBoard.getZobrist().side();
+    }
+
+    /**
+     * Get the index of a player in {@link Configuration#getPlayers()}, which is also the player index used by
+     * {@link BitBoard}.
+     *
+     * @param player the player
+     * @return the index, or -1 if the player is not in this game
+     */
+    public int getPlayerIndex(Player player) {
+        return BitBoard.indexOf(this.configuration.getPlayers(), player);
+    }
+
+    /**
+     * Get the number of pieces a player has on the board.
+     *
+     * @param player the player
+     * @return number of pieces
+     */
+    public int getNumPieces(Player player) {
+        var index = this.getPlayerIndex(player);
+        return index < 0 ? 0 : this.bitBoard.count(index);
+    }
+
+    /**
+     * Convert a packed move of {@link MoveList} to a shared {@link Move}.
+     *
+     * @param move the packed move
+     * @return the move
+     */
+    public @NotNull Move toMove(int move) {
+        var source = MoveList.source(move);
+        var destination = MoveList.destination(move);
+        return Move.of(this.bitBoard.x(source), this.bitBoard.y(source),
+                this.bitBoard.x(destination), this.bitBoard.y(destination));
+    }
+
+    /**
+     * Convert packed moves of {@link MoveList} to shared {@link Move}s.
+     *
+     * @param moves the packed moves
+     * @return the moves
+     */
+    public @NotNull Move[] toMoves(@NotNull MoveList moves) {
+        var result = new Move[moves.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.toMove(moves.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Convert a move to the packed form of {@link MoveList} against the current board.
+     *
+     * @param move the move, whose places must be inside the board
+     * @return the packed move
+     */
+    public int toPackedMove(@NotNull Move move) {
+        var destination = this.bitBoard.square(move.getDestination());
+        return MoveList.encode(this.bitBoard.square(move.getSource()), destination,
+                this.bitBoard.isOccupied(destination));
     }
 
     public Player getCurrentPlayer() {
@@ -277,6 +479,9 @@ public abstract class Game implements Cloneable {
             if (this.configuration.getSize() >= 0)
                 System.arraycopy(this.board[i], 0, cloned.board[i], 0, this.configuration.getSize());
         }
+        cloned.bitBoard = this.bitBoard.clone();
+        cloned.eventBus = null;
+        cloned.moveIterator = null;
         cloned.currentPlayer = currentPlayer == null ? null : currentPlayer.clone();
         return cloned;
     }
@@ -2,22 +2,27 @@ package castle.comp3021.assignment.protocol;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Objects;
 import java.util.StringJoiner;
 
 /**
  * Move class represent a move made by a {@link Player}, moving a piece from one {@link Place} to another {@link Place}.
  */
 public class Move implements Cloneable {
+    /**
+     * Flyweight moves between interned places, indexed by the source and then the destination.
+     * Rows are allocated on first use.
+     */
+    private static final Move[][] MOVES = new Move[Place.MAX_SIZE * Place.MAX_SIZE][];
+
     /**
      * Source place of the move.
      */
-    private Place source;
+    private final Place source;
 
     /**
      * Move destination
      */
-    private Place destination;
+    private final Place destination;
 
     public Move(@NotNull Place source, @NotNull Place destination) {
         this.source = source;
@@ -25,11 +30,51 @@ public class Move implements Cloneable {
     }
 
     public Move(int sourceX, int sourceY, int destinationX, int destinationY) {
-        this(new Place(sourceX, sourceY), new Place(destinationX, destinationY));
+        this(Place.of(sourceX, sourceY), Place.of(destinationX, destinationY));
     }
 
     public Move(Place source, int destinationX, int destinationY) {
-        this(source, new Place(destinationX, destinationY));
+        this(source, Place.of(destinationX, destinationY));
+    }
+
+    /**
+     * Get the shared instance of a move.
+     * Moves are immutable, so the returned instance can be compared and hashed without allocation.
+     * Moves involving places that are not interned (see {@link Place#of(int, int)}) are created on each call.
+     *
+     * @param sourceX      x coordinate of the source
+     * @param sourceY      y coordinate of the source
+     * @param destinationX x coordinate of the destination
+     * @param destinationY y coordinate of the destination
+     * @return the move
+     */
+    public static Move of(int sourceX, int sourceY, int destinationX, int destinationY) {
+        var from = Place.indexOf(sourceX, sourceY);
+        var to = Place.indexOf(destinationX, destinationY);
+        if (from < 0 || to < 0) {
+            return new Move(sourceX, sourceY, destinationX, destinationY);
+        }
+        var row = MOVES[from];
+        if (row == null) {
+            synchronized (MOVES) {
+                row = MOVES[from];
+                if (row == null) {
+                    row = new Move[Place.MAX_SIZE * Place.MAX_SIZE];
+                    MOVES[from] = row;
+                }
+            }
+        }
+        var move = row[to];
+        if (move == null) {
+            // racing threads may create equal instances, which is harmless as moves are immutable
+            move = new Move(Place.of(sourceX, sourceY), Place.of(destinationX, destinationY));
+            row[to] = move;
+        }
+        return move;
+    }
+
+    public static Move of(@NotNull Place source, @NotNull Place destination) {
+        return of(source.x(), source.y(), destination.x(), destination.y());
     }
 
     /* Getters start */
@@ -54,7 +99,7 @@ public class Move implements Cloneable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(source, destination);
+        return 31 * source.hashCode() + destination.hashCode();
     }
 
     @Override
@@ -67,10 +112,8 @@ public class Move implements Cloneable {
 
     @Override
     public Move clone() throws CloneNotSupportedException {
-        var cloned = (Move) super.clone();
-        cloned.source = this.source.clone();
-        cloned.destination = this.destination.clone();
-        return cloned;
+        // fields are final, so deep copy through the constructor
+        return new Move(this.source.clone(), this.destination.clone());
     }
 
     /* Object methods end */
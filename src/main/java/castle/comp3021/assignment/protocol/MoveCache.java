@@ -0,0 +1,196 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.KnightTables;
+
+import java.util.Arrays;
+
+/**
+ * Cache of the available moves of each piece on the board, indexed by square as in {@link BitBoard}.
+ * <p>
+ * The moves of a piece only depend on a few squares: a knight on its leg and destination squares, an archer on its
+ * rank and file. After a move changes some squares, {@link MoveCache#invalidate(BitBoard, int)} drops the entries of
+ * the pieces depending on them, and the other entries are reused by the next
+ * {@link MoveCache#getAvailableMoves(Game, int, MoveList)}. Whether captures are allowed also decides the moves, so
+ * all entries are dropped when it changes. Pieces of types unknown to {@link BitBoard} are never cached.
+ * <p>
+ * In consistency-check mode, every query also generates the moves from scratch and throws
+ * {@link IllegalStateException} if they differ from the cached ones.
+ */
+public class MoveCache implements Cloneable {
+    private final int size;
+
+    /**
+     * Maximum number of moves of one piece, which is the space reserved for each square
+     */
+    private final int stride;
+
+    /**
+     * Moves of the piece on square {@code s} are stored in {@code moves[s * stride]} onwards
+     */
+    private int[] moves;
+
+    private int[] counts;
+
+    /**
+     * Squares whose entry is up to date
+     */
+    private long[] valid;
+
+    /**
+     * Whether captures were allowed when the entries were generated
+     */
+    private boolean canCapture = false;
+
+    private boolean checkConsistency = false;
+
+    /**
+     * Moves generated from scratch in consistency-check mode
+     */
+    private MoveList expected = new MoveList();
+
+    /**
+     * @param size size of the gameboard
+     */
+    public MoveCache(int size) {
+        this.size = size;
+        // an archer moves along one rank and one file
+        this.stride = Math.max(KnightTables.MAX_MOVES, 2 * (size - 1));
+        this.moves = new int[size * size * stride];
+        this.counts = new int[size * size];
+        this.valid = new long[(size * size + 63) >>> 6];
+    }
+
+    /**
+     * Drop all entries, e.g. after the whole board is replaced.
+     */
+    public void reset() {
+        Arrays.fill(valid, 0);
+    }
+
+    /**
+     * Drop the entries depending on a square whose piece has changed, which must be called after the bitboard is
+     * updated. Both squares of a move should be invalidated.
+     *
+     * @param bitBoard the bitboard after the change
+     * @param square   the changed square
+     */
+    public void invalidate(BitBoard bitBoard, int square) {
+        drop(square);
+        // knights reaching the square: knight steps are symmetric
+        var tables = KnightTables.of(size);
+        for (int entry = tables.start(square); entry < tables.end(square); entry++) {
+            drop(tables.target(entry));
+        }
+        // knights whose leg is the square are next to it
+        var x = bitBoard.x(square);
+        var y = bitBoard.y(square);
+        if (x > 0) {
+            drop(square - size);
+        }
+        if (x < size - 1) {
+            drop(square + size);
+        }
+        if (y > 0) {
+            drop(square - 1);
+        }
+        if (y < size - 1) {
+            drop(square + 1);
+        }
+        // archers on the same rank or file
+        var archers = bitBoard.getTypeOccupancy(BitBoard.ARCHER);
+        for (int i = 0; i < size; i++) {
+            var file = x * size + i;
+            if (BitBoard.contains(archers, file)) {
+                drop(file);
+            }
+            var rank = i * size + y;
+            if (BitBoard.contains(archers, rank)) {
+                drop(rank);
+            }
+        }
+    }
+
+    private void drop(int square) {
+        valid[square >>> 6] &= ~(1L << square);
+    }
+
+    /**
+     * Get all available moves of one player, in the same order as generating them piece by piece in the order of
+     * {@link BitBoard#getPieces(int)}.
+     *
+     * @param game   the game
+     * @param player index of the player
+     * @param list   the list to fill
+     */
+    public void getAvailableMoves(Game game, int player, MoveList list) {
+        list.clear();
+        var canCapture = game.getNumMoves() >= game.getConfiguration().getNumMovesProtection();
+        if (canCapture != this.canCapture) {
+            this.reset();
+            this.canCapture = canCapture;
+        }
+        var bitBoard = game.getBitBoard();
+        var pieces = bitBoard.getPieces(player);
+        for (int i = 0; i < bitBoard.count(player); i++) {
+            var square = pieces[i];
+            var offset = square * stride;
+            if (BitBoard.contains(valid, square)) {
+                list.addAll(moves, offset, counts[square]);
+                continue;
+            }
+            var start = list.size();
+            game.getPiece(bitBoard.x(square), bitBoard.y(square)).getAvailableMoves(game, square, list);
+            var count = list.size() - start;
+            if (bitBoard.typeAt(square) < 0 || count > stride) {
+                continue;
+            }
+            for (int j = 0; j < count; j++) {
+                moves[offset + j] = list.get(start + j);
+            }
+            counts[square] = count;
+            valid[square >>> 6] |= 1L << square;
+        }
+        if (checkConsistency) {
+            this.check(game, player, list);
+        }
+    }
+
+    private void check(Game game, int player, MoveList list) {
+        var bitBoard = game.getBitBoard();
+        var pieces = bitBoard.getPieces(player);
+        expected.clear();
+        for (int i = 0; i < bitBoard.count(player); i++) {
+            var square = pieces[i];
+            game.getPiece(bitBoard.x(square), bitBoard.y(square)).getAvailableMoves(game, square, expected);
+        }
+        var consistent = expected.size() == list.size();
+        for (int i = 0; consistent && i < list.size(); i++) {
+            consistent = expected.get(i) == list.get(i);
+        }
+        if (!consistent) {
+            throw new IllegalStateException("move cache is inconsistent after " + game.getNumMoves()
+                    + " moves: cached " + list + ", expected " + expected);
+        }
+    }
+
+    public boolean isCheckConsistency() {
+        return checkConsistency;
+    }
+
+    /**
+     * @param checkConsistency whether to compare every query against generating the moves from scratch
+     */
+    public void setCheckConsistency(boolean checkConsistency) {
+        this.checkConsistency = checkConsistency;
+    }
+
+    @Override
+    public MoveCache clone() throws CloneNotSupportedException {
+        var cloned = (MoveCache) super.clone();
+        cloned.moves = this.moves.clone();
+        cloned.counts = this.counts.clone();
+        cloned.valid = this.valid.clone();
+        cloned.expected = new MoveList();
+        return cloned;
+    }
+}
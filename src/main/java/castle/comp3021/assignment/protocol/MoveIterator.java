@@ -0,0 +1,376 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.KnightTables;
+import castle.comp3021.assignment.piece.RuleEngine;
+
+/**
+ * Lazy iterator over the available moves of one player in one position, in packed form of {@link MoveList}.
+ * <p>
+ * Moves are yielded in stages: a stored best move, e.g. from a transposition table, then captures (knights before
+ * archers as victims, and archers before knights as attackers), then up to two killer moves, then quiet moves into or
+ * out of the central square, and finally the other quiet moves piece by piece. A stage is only generated when the
+ * previous one is exhausted, so a caller which stops early, e.g. after a beta cutoff or at the first available move,
+ * saves the work of the later stages. The stored move and killer moves are validated by {@link RuleEngine} and yielded
+ * only once. The captures come from {@link Game#getAvailableCaptures(Player, MoveList)}, and may also be iterated
+ * alone through {@link MoveIterator#resetCaptures(Game, int)}. The central stage is generated around the central
+ * square only: the moves of the piece standing on it, or else the knights a knight step away and the first archers on
+ * its rank and file. The quiet stage then takes the moves of each other piece from
+ * {@link Piece#getAvailableQuietMoves(Game, int, MoveList)} when the piece is reached, without the moves into the
+ * central square.
+ * <p>
+ * If the player has pieces of types unknown to the {@link BitBoard}, all moves after the stored move are generated by
+ * {@link Game#getAvailableMoves(Player, MoveList)} in one stage instead.
+ * The position must not change while iterating, except for moves which are undone before the next call; an iterator
+ * may be reused by calling {@link MoveIterator#reset(Game, int, int, int, int)} again.
+ */
+public class MoveIterator {
+    /**
+     * Returned by {@link MoveIterator#next()} when there are no more moves
+     */
+    public static final int NONE = -1;
+
+    /* Stages start */
+    public static final int STORED = 0;
+    public static final int CAPTURES = 1;
+    public static final int KILLERS = 2;
+    public static final int CENTRAL = 3;
+    public static final int QUIET = 4;
+    public static final int ALL = 5;
+    public static final int DONE = 6;
+    /* Stages end */
+
+    private Game game;
+    private BitBoard bitBoard;
+    private int player;
+    private int center;
+    private RuleEngine ruleEngine;
+
+    private int stage = DONE;
+
+    /**
+     * Whether the iteration ends after the captures
+     */
+    private boolean capturesOnly = false;
+
+    /**
+     * The stored move and killer moves; an entry is replaced by {@link MoveIterator#NONE} if it is not yielded
+     */
+    private final int[] special = new int[3];
+
+    /**
+     * Moves of the current stage and the index of the next one
+     */
+    private final MoveList moves = new MoveList();
+    private int index = 0;
+
+    /**
+     * Index in the piece list of the player of the next piece of the quiet stage
+     */
+    private int nextPiece = 0;
+
+    /**
+     * Ordering keys of captures
+     */
+    private int[] keys = new int[64];
+
+    /**
+     * Start iterating the moves of a player without stored or killer moves.
+     *
+     * @param game   the game
+     * @param player index of the player
+     */
+    public void reset(Game game, int player) {
+        this.reset(game, player, NONE, NONE, NONE);
+    }
+
+    /**
+     * Start iterating the moves of a player.
+     *
+     * @param game    the game
+     * @param player  index of the player
+     * @param stored  packed move to yield first if it is valid, whose capture flag is ignored
+     * @param killer1 quiet packed move to yield after the captures if it is valid
+     * @param killer2 another quiet packed move to yield after the captures if it is valid
+     */
+    public void reset(Game game, int player, int stored, int killer1, int killer2) {
+        this.game = game;
+        this.bitBoard = game.getBitBoard();
+        this.player = player;
+        this.center = bitBoard.square(game.getCentralPlace());
+        var numMovesProtection = game.getConfiguration().getNumMovesProtection();
+        if (ruleEngine == null || ruleEngine.getNumMovesProtection() != numMovesProtection) {
+            ruleEngine = RuleEngine.of(numMovesProtection);
+        }
+        special[0] = stored;
+        special[1] = killer1;
+        special[2] = killer2;
+        moves.clear();
+        index = 0;
+        nextPiece = 0;
+        stage = STORED;
+        capturesOnly = false;
+    }
+
+    /**
+     * Start iterating the captures of a player only, e.g. for a quiescence search.
+     *
+     * @param game   the game
+     * @param player index of the player
+     */
+    public void resetCaptures(Game game, int player) {
+        this.reset(game, player);
+        this.generateCaptures();
+        stage = CAPTURES;
+        capturesOnly = true;
+    }
+
+    /**
+     * @return the next available move in packed form, or {@link MoveIterator#NONE} if there are no more
+     */
+    public int next() {
+        while (true) {
+            switch (stage) {
+                case STORED:
+                    special[0] = this.accept(special[0], true, 0);
+                    if (bitBoard.count(player) != bitBoard.count(player, BitBoard.KNIGHT)
+                            + bitBoard.count(player, BitBoard.ARCHER)) {
+                        special[1] = NONE;
+                        special[2] = NONE;
+                        this.generateAll();
+                        stage = ALL;
+                    } else {
+                        this.generateCaptures();
+                        stage = CAPTURES;
+                    }
+                    if (special[0] != NONE) {
+                        return special[0];
+                    }
+                    break;
+                case CAPTURES:
+                    if (index < moves.size()) {
+                        var move = this.pickCapture();
+                        if (move != special[0]) {
+                            return move;
+                        }
+                        break;
+                    }
+                    stage = capturesOnly ? DONE : KILLERS;
+                    index = 1;
+                    break;
+                case KILLERS:
+                    if (index < special.length) {
+                        var i = index++;
+                        special[i] = this.accept(special[i], false, i);
+                        if (special[i] != NONE) {
+                            return special[i];
+                        }
+                        break;
+                    }
+                    this.generateCentral();
+                    stage = CENTRAL;
+                    break;
+                case CENTRAL:
+                    if (index < moves.size()) {
+                        var move = moves.get(index++);
+                        if (!this.isSpecial(move)) {
+                            return move;
+                        }
+                        break;
+                    }
+                    moves.clear();
+                    index = 0;
+                    stage = QUIET;
+                    break;
+                case QUIET:
+                    if (index < moves.size()) {
+                        var move = moves.get(index++);
+                        if (!this.isSpecial(move)) {
+                            return move;
+                        }
+                        break;
+                    }
+                    if (!this.generateQuiet()) {
+                        stage = DONE;
+                    }
+                    break;
+                case ALL:
+                    if (index < moves.size()) {
+                        var move = moves.get(index++);
+                        if (move != special[0]) {
+                            return move;
+                        }
+                        break;
+                    }
+                    stage = DONE;
+                    break;
+                default:
+                    return NONE;
+            }
+        }
+    }
+
+    /**
+     * Check a stored or killer move.
+     *
+     * @param allowCapture whether the move may be a capture
+     * @param numYielded   number of entries of {@link MoveIterator#special} before it, which may be yielded already
+     * @return the move with its capture flag set as on the board, or {@link MoveIterator#NONE} if it is not available
+     * or already yielded
+     */
+    private int accept(int move, boolean allowCapture, int numYielded) {
+        if (move == NONE) {
+            return NONE;
+        }
+        var numSquares = bitBoard.getSize() * bitBoard.getSize();
+        var source = MoveList.source(move);
+        var destination = MoveList.destination(move);
+        if (source >= numSquares || destination >= numSquares || bitBoard.ownerAt(source) != player) {
+            return NONE;
+        }
+        var capture = bitBoard.isOccupied(destination);
+        if (capture && !allowCapture) {
+            return NONE;
+        }
+        move = MoveList.encode(source, destination, capture);
+        for (int i = 0; i < numYielded; i++) {
+            if (special[i] == move) {
+                return NONE;
+            }
+        }
+        return ruleEngine.isValid(game, move) ? move : NONE;
+    }
+
+    /**
+     * @return whether the move was yielded as the stored or a killer move
+     */
+    private boolean isSpecial(int move) {
+        return move == special[0] || move == special[1] || move == special[2];
+    }
+
+    private void generateAll() {
+        game.getAvailableMoves(game.getConfiguration().getPlayers()[player], moves);
+        index = 0;
+    }
+
+    private void generateCaptures() {
+        game.getAvailableCaptures(game.getConfiguration().getPlayers()[player], moves);
+        index = 0;
+        if (keys.length < moves.size()) {
+            keys = new int[moves.size() * 2];
+        }
+        for (int i = 0; i < moves.size(); i++) {
+            var move = moves.get(i);
+            keys[i] = (bitBoard.typeAt(MoveList.destination(move)) == BitBoard.KNIGHT ? 2 : 0)
+                    + (bitBoard.typeAt(MoveList.source(move)) == BitBoard.KNIGHT ? 0 : 1);
+        }
+    }
+
+    /**
+     * Selection sort step: take the capture with the highest key among the remaining ones.
+     */
+    private int pickCapture() {
+        var best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (keys[i] > keys[best]) {
+                best = i;
+            }
+        }
+        var move = moves.get(best);
+        if (best != index) {
+            moves.set(best, moves.get(index));
+            moves.set(index, move);
+            var key = keys[best];
+            keys[best] = keys[index];
+            keys[index] = key;
+        }
+        index++;
+        return move;
+    }
+
+    /**
+     * Generate the quiet moves into or out of the central square, which win the game or give it up: the moves of the
+     * piece of the player on the central square, or else the moves of the pieces which reach the empty central square.
+     */
+    private void generateCentral() {
+        moves.clear();
+        index = 0;
+        var occupied = bitBoard.getOccupied();
+        if (BitBoard.contains(occupied, center)) {
+            if (bitBoard.ownerAt(center) == player) {
+                this.pieceAt(center).getAvailableQuietMoves(game, center, moves);
+            }
+            return;
+        }
+        var size = bitBoard.getSize();
+        var own = bitBoard.getPlayerOccupancy(player);
+        // knight steps are symmetric, so the knights reaching the central square are a knight step away from it
+        var tables = KnightTables.of(size);
+        var knights = bitBoard.getTypeOccupancy(BitBoard.KNIGHT);
+        for (int entry = tables.start(center); entry < tables.end(center); entry++) {
+            var source = tables.target(entry);
+            if (!BitBoard.contains(own, source) || !BitBoard.contains(knights, source)) {
+                continue;
+            }
+            for (int back = tables.start(source); back < tables.end(source); back++) {
+                if (tables.target(back) == center) {
+                    if (!BitBoard.contains(occupied, tables.leg(back))) {
+                        moves.add(source, center, false);
+                    }
+                    break;
+                }
+            }
+        }
+        // archers reaching the central square are the first pieces on its rank and file
+        var archers = bitBoard.getTypeOccupancy(BitBoard.ARCHER);
+        var x = bitBoard.x(center);
+        var y = bitBoard.y(center);
+        this.addArcherToCenter(occupied, own, archers, -size, x);
+        this.addArcherToCenter(occupied, own, archers, size, size - 1 - x);
+        this.addArcherToCenter(occupied, own, archers, -1, y);
+        this.addArcherToCenter(occupied, own, archers, 1, size - 1 - y);
+    }
+
+    private void addArcherToCenter(long[] occupied, long[] own, long[] archers, int step, int length) {
+        for (int i = 0, square = center + step; i < length; i++, square += step) {
+            if (BitBoard.contains(occupied, square)) {
+                if (BitBoard.contains(own, square) && BitBoard.contains(archers, square)) {
+                    moves.add(square, center, false);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Generate the quiet moves of the next piece which has any, except the moves of the central stage.
+     *
+     * @return false if there are no more pieces
+     */
+    private boolean generateQuiet() {
+        moves.clear();
+        index = 0;
+        var pieces = bitBoard.getPieces(player);
+        while (moves.isEmpty()) {
+            if (nextPiece >= bitBoard.count(player)) {
+                return false;
+            }
+            var square = pieces[nextPiece++];
+            if (square == center) {
+                continue;
+            }
+            this.pieceAt(square).getAvailableQuietMoves(game, square, moves);
+            var end = 0;
+            for (int i = 0; i < moves.size(); i++) {
+                if (MoveList.destination(moves.get(i)) != center) {
+                    moves.set(end++, moves.get(i));
+                }
+            }
+            moves.truncate(end);
+        }
+        return true;
+    }
+
+    private Piece pieceAt(int square) {
+        return game.getPiece(bitBoard.x(square), bitBoard.y(square));
+    }
+}
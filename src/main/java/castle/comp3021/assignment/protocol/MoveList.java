@@ -0,0 +1,159 @@
+package castle.comp3021.assignment.protocol;
+
+import java.util.Arrays;
+
+/**
+ * A reusable list of moves packed into {@code int}s, filled by {@link Game#getAvailableMoves(Player, MoveList)}.
+ * <p>
+ * A packed move stores the source and destination square indexes (as used by {@link BitBoard}) and whether the
+ * move captures a piece:
+ * <pre>
+ * bits  0-9:  source square
+ * bits 10-19: destination square
+ * bit  20:    capture flag
+ * </pre>
+ * The list is owned by the caller and can be cleared and refilled without allocating, as long as its capacity is
+ * large enough.
+ */
+public final class MoveList {
+    private static final int SQUARE_BITS = 10;
+    private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+    private static final int CAPTURE_FLAG = 1 << (2 * SQUARE_BITS);
+
+    private int[] moves;
+
+    private int size = 0;
+
+    public MoveList() {
+        this(64);
+    }
+
+    public MoveList(int capacity) {
+        this.moves = new int[Math.max(capacity, 1)];
+    }
+
+    /* Packing start */
+    public static int encode(int source, int destination, boolean capture) {
+        return source | (destination << SQUARE_BITS) | (capture ? CAPTURE_FLAG : 0);
+    }
+
+    public static int source(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    public static int destination(int move) {
+        return (move >>> SQUARE_BITS) & SQUARE_MASK;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE_FLAG) != 0;
+    }
+    /* Packing end */
+
+    /**
+     * Append a packed move.
+     *
+     * @param move the packed move
+     */
+    public void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+
+    /**
+     * Append a move.
+     *
+     * @param source      source square
+     * @param destination destination square
+     * @param capture     whether the move captures a piece
+     */
+    public void add(int source, int destination, boolean capture) {
+        add(encode(source, destination, capture));
+    }
+
+    /**
+     * Append packed moves from an array.
+     *
+     * @param source the array
+     * @param from   index of the first move in the array
+     * @param length number of moves
+     */
+    public void addAll(int[] source, int from, int length) {
+        if (size + length > moves.length) {
+            moves = Arrays.copyOf(moves, Math.max(size * 2, size + length));
+        }
+        System.arraycopy(source, from, moves, size, length);
+        size += length;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Remove moves at the end of the list, keeping the first {@code size} moves.
+     *
+     * @param size the new size, not greater than the current one
+     */
+    public void truncate(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Reverse the order of the moves in a range.
+     *
+     * @param from first index of the range (inclusive)
+     * @param to   last index of the range (exclusive)
+     */
+    public void reverse(int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            var tmp = moves[i];
+            moves[i] = moves[j];
+            moves[j] = tmp;
+        }
+    }
+
+    /**
+     * @param move the packed move
+     * @return whether the list contains the move, ignoring the capture flag
+     */
+    public boolean contains(int move) {
+        var key = move & ~CAPTURE_FLAG;
+        for (int i = 0; i < size; i++) {
+            if ((moves[i] & ~CAPTURE_FLAG) == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(source(moves[i])).append(isCapture(moves[i]) ? "x" : "->").append(destination(moves[i]));
+        }
+        return builder.append(']').toString();
+    }
+}
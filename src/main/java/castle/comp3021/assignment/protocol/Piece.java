@@ -37,5 +37,63 @@ public abstract class Piece {
      */
     public abstract Move[] getAvailableMoves(Game game, Place source);
 
+    /**
+     * Append the moves that are valid to make given the current square of the piece to a {@link MoveList}.
+     * The default implementation adapts {@link Piece#getAvailableMoves(Game, Place)}; pieces should override it to
+     * generate packed moves directly.
+     *
+     * @param game   the game object
+     * @param source the current square of the piece, as indexed by {@link BitBoard}
+     * @param moves  the list to append to
+     */
+    public void getAvailableMoves(Game game, int source, MoveList moves) {
+        var bitBoard = game.getBitBoard();
+        for (var move : this.getAvailableMoves(game, Place.of(bitBoard.x(source), bitBoard.y(source)))) {
+            moves.add(game.toPackedMove(move));
+        }
+    }
+
+    /**
+     * Append the captures among the moves of {@link Piece#getAvailableMoves(Game, int, MoveList)} to a
+     * {@link MoveList}, e.g. for a quiescence search. The default implementation generates all moves and keeps the
+     * captures; pieces should override it to skip quiet moves.
+     *
+     * @param game   the game object
+     * @param source the current square of the piece, as indexed by {@link BitBoard}
+     * @param moves  the list to append to
+     */
+    public void getAvailableCaptures(Game game, int source, MoveList moves) {
+        var start = moves.size();
+        this.getAvailableMoves(game, source, moves);
+        var end = start;
+        for (int i = start; i < moves.size(); i++) {
+            if (MoveList.isCapture(moves.get(i))) {
+                moves.set(end++, moves.get(i));
+            }
+        }
+        moves.truncate(end);
+    }
+
+    /**
+     * Append the quiet moves among the moves of {@link Piece#getAvailableMoves(Game, int, MoveList)} to a
+     * {@link MoveList}, e.g. for the later stages of a {@link MoveIterator}. The default implementation generates all
+     * moves and keeps the non-captures; pieces should override it to skip captures.
+     *
+     * @param game   the game object
+     * @param source the current square of the piece, as indexed by {@link BitBoard}
+     * @param moves  the list to append to
+     */
+    public void getAvailableQuietMoves(Game game, int source, MoveList moves) {
+        var start = moves.size();
+        this.getAvailableMoves(game, source, moves);
+        var end = start;
+        for (int i = start; i < moves.size(); i++) {
+            if (!MoveList.isCapture(moves.get(i))) {
+                moves.set(end++, moves.get(i));
+            }
+        }
+        moves.truncate(end);
+    }
+
     public abstract Renderer.@NotNull CellImage getImageRep();
 }
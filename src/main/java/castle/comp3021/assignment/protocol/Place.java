@@ -1,7 +1,5 @@
 package castle.comp3021.assignment.protocol;
 
-import java.util.Objects;
-
 /**
  * A square (position, place) in the gameboard.
  * Represented by coordinates a 2-D coordinate system.
@@ -9,6 +7,25 @@ import java.util.Objects;
  * x and y coordinates of a place on gameboard are two fields of this class.
  */
 public class Place implements Cloneable {
+    /**
+     * Places with both coordinates in {@code [0, MAX_SIZE)} are interned, which covers every place of the largest
+     * gameboard allowed by {@link Configuration}.
+     */
+    public static final int MAX_SIZE = 26;
+
+    /**
+     * Canonical instances of places, indexed by {@link Place#indexOf(int, int)}
+     */
+    private static final Place[] PLACES = new Place[MAX_SIZE * MAX_SIZE];
+
+    static {
+        for (int x = 0; x < MAX_SIZE; x++) {
+            for (int y = 0; y < MAX_SIZE; y++) {
+                PLACES[x * MAX_SIZE + y] = new Place(x, y);
+            }
+        }
+    }
+
     /**
      * x coordinate
      */
@@ -25,6 +42,32 @@ public class Place implements Cloneable {
     }
 
 
+    /**
+     * Get the canonical instance of a place.
+     * Places outside of the largest gameboard (e.g. parsed from invalid user input) are not interned, and a new
+     * instance is returned for them.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the place
+     */
+    public static Place of(int x, int y) {
+        var index = indexOf(x, y);
+        return index < 0 ? new Place(x, y) : PLACES[index];
+    }
+
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the index of the interned place, or -1 if such a place is not interned
+     */
+    static int indexOf(int x, int y) {
+        if (x < 0 || y < 0 || x >= MAX_SIZE || y >= MAX_SIZE) {
+            return -1;
+        }
+        return x * MAX_SIZE + y;
+    }
+
     /* Getters start */
     public int x() {
         return x;
@@ -48,7 +91,7 @@ public class Place implements Cloneable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(x, y);
+        return 31 * x + y;
     }
 
     @Override
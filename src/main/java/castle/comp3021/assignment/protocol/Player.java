@@ -2,6 +2,7 @@ package castle.comp3021.assignment.protocol;
 
 import castle.comp3021.assignment.piece.*;
 import org.jetbrains.annotations.NotNull;
+import java.util.BitSet;
 import java.util.Objects;
 
 /**
@@ -85,24 +86,39 @@ public abstract class Player implements Cloneable {
      */
     public abstract @NotNull Move nextMove(Game game, Move[] availableMoves);
 
+    /**
+     * Choose a move from available moves in packed form (see {@link MoveList}).
+     * The default implementation delegates to {@link Player#nextMove(Game, Move[])}. Computer players should
+     * override it to choose a move without creating objects.
+     *
+     * @param game           the current game object
+     * @param availableMoves available moves for this player to choose from.
+     * @return the chosen packed move
+     */
+    public int nextMove(Game game, MoveList availableMoves) {
+        return game.toPackedMove(this.nextMove(game, game.toMoves(availableMoves)));
+    }
+
+    /**
+     * Validate a move against the rules of the game.
+     *
+     * @param game the current game object
+     * @param move the move to validate
+     * @return the description of the first violated {@link Rule}, or null if the move is valid
+     */
     public String validateMove(Game game, Move move) {
-        var rules = new Rule[]{
-                new OutOfBoundaryRule(),
-                new OccupiedRule(),
-                new VacantRule(),
-                new NilMoveRule(),
-                new FirstNMovesProtectionRule(game.getConfiguration().getNumMovesProtection()),
-                new ArcherMoveRule(),
-                new KnightMoveRule(),
-                new KnightBlockRule(),
-        };
-        for (var rule :
-                rules) {
-            if (!rule.validate(game, move)) {
-                return rule.getDescription();
-            }
-        }
-        return null;
+        return RuleEngine.of(game.getConfiguration()).validate(game, move);
+    }
+
+    /**
+     * Validate many moves against the current position of a game at once.
+     *
+     * @param game  the current game object
+     * @param moves the moves to validate
+     * @return the indexes of the valid moves
+     */
+    public BitSet validateMoves(Game game, Move[] moves) {
+        return RuleEngine.of(game.getConfiguration()).validateAll(game, moves);
     }
 
     @Override
@@ -0,0 +1,132 @@
+package castle.comp3021.assignment.protocol;
+
+import java.util.Arrays;
+
+/**
+ * Positions of a game since the last irreversible move, counted by their Zobrist key, for detecting repeated
+ * positions.
+ * <p>
+ * A position cannot occur again after a capture, so the history is cleared then and only holds the position after the
+ * last capture and the positions since; its length is one more than the number of moves without capture. Keys are
+ * counted in an open-addressing hash table, so adding a position takes constant time. Clearing only starts a new generation of the table instead of
+ * emptying it.
+ */
+public class PositionHistory implements Cloneable {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private long[] keys;
+
+    private int[] counts;
+
+    /**
+     * Generation of each slot, which is only in use if it equals {@link PositionHistory#generation}
+     */
+    private int[] generations;
+
+    private int generation = 1;
+
+    /**
+     * Number of distinct positions
+     */
+    private int size = 0;
+
+    /**
+     * Number of positions added since the last clear
+     */
+    private int length = 0;
+
+    public PositionHistory() {
+        this.keys = new long[INITIAL_CAPACITY];
+        this.counts = new int[INITIAL_CAPACITY];
+        this.generations = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Add a position.
+     *
+     * @param key Zobrist key of the position, including the side to move
+     * @return how many times the position occurred since the last clear, including this time
+     */
+    public int add(long key) {
+        if ((size + 1) * 2 > keys.length) {
+            this.grow();
+        }
+        length++;
+        var mask = keys.length - 1;
+        var index = this.indexOf(key, mask);
+        if (generations[index] == generation) {
+            return ++counts[index];
+        }
+        generations[index] = generation;
+        keys[index] = key;
+        counts[index] = 1;
+        size++;
+        return 1;
+    }
+
+    /**
+     * @param key Zobrist key of the position
+     * @return how many times the position occurred since the last clear
+     */
+    public int count(long key) {
+        var index = this.indexOf(key, keys.length - 1);
+        return generations[index] == generation ? counts[index] : 0;
+    }
+
+    /**
+     * Find the slot of a key, or the empty slot where it would be put.
+     */
+    private int indexOf(long key, int mask) {
+        var index = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (generations[index] == generation && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void grow() {
+        var oldKeys = keys;
+        var oldCounts = counts;
+        var oldGenerations = generations;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        generations = new int[oldKeys.length * 2];
+        var mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldGenerations[i] == generation) {
+                var index = this.indexOf(oldKeys[i], mask);
+                generations[index] = generation;
+                keys[index] = oldKeys[i];
+                counts[index] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Forget all positions, e.g. after a capture.
+     */
+    public void clear() {
+        size = 0;
+        length = 0;
+        if (++generation == 0) {
+            Arrays.fill(generations, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * @return number of positions added since the last clear
+     */
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public PositionHistory clone() throws CloneNotSupportedException {
+        var cloned = (PositionHistory) super.clone();
+        cloned.keys = this.keys.clone();
+        cloned.counts = this.counts.clone();
+        cloned.generations = this.generations.clone();
+        return cloned;
+    }
+}
@@ -0,0 +1,91 @@
+package castle.comp3021.assignment.protocol;
+
+/**
+ * Zobrist hashing keys of one board size.
+ * <p>
+ * The key of a position is the XOR of the keys of (owner, piece type, square) of all pieces on board, and the key of
+ * the side to move if it is the second player. Keys are generated from a fixed seed per board size, so hashes of the
+ * same position are stable across runs.
+ */
+public final class Zobrist {
+    /**
+     * Number of piece type slots, with one extra slot for pieces of types unknown to {@link BitBoard}
+     */
+    private static final int NUM_TYPE_SLOTS = BitBoard.NUM_TYPES + 1;
+
+    /**
+     * Keys indexed by board size
+     */
+    private static final Zobrist[] KEYS = new Zobrist[Place.MAX_SIZE + 1];
+
+    /**
+     * Piece keys indexed by {@code (player * NUM_TYPE_SLOTS + type) * numSquares + square}
+     */
+    private final long[] pieces;
+
+    private final long side;
+
+    private final int numSquares;
+
+    private Zobrist(int size) {
+        this.numSquares = size * size;
+        this.pieces = new long[BitBoard.NUM_PLAYERS * NUM_TYPE_SLOTS * numSquares];
+        var state = 0x5EED_3021L * size;
+        for (int i = 0; i < pieces.length; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            pieces[i] = mix(state);
+        }
+        state += 0x9E3779B97F4A7C15L;
+        this.side = mix(state);
+    }
+
+    /**
+     * The finalizer of SplitMix64, turning a counter into well distributed bits.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Get the keys of a board size, generating them on first use.
+     *
+     * @param size size of the gameboard
+     * @return the shared keys
+     */
+    public static Zobrist of(int size) {
+        var keys = KEYS[size];
+        if (keys == null) {
+            synchronized (KEYS) {
+                keys = KEYS[size];
+                if (keys == null) {
+                    keys = new Zobrist(size);
+                    KEYS[size] = keys;
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * @param player index of the owner
+     * @param type   type index of the piece as in {@link BitBoard}, or -1 for other types
+     * @param square the square
+     * @return the key of the piece on the square, or 0 if the owner is unknown
+     */
+    public long piece(int player, int type, int square) {
+        if (player < 0 || player >= BitBoard.NUM_PLAYERS) {
+            return 0;
+        }
+        var slot = type < 0 ? BitBoard.NUM_TYPES : type;
+        return pieces[(player * NUM_TYPE_SLOTS + slot) * numSquares + square];
+    }
+
+    /**
+     * @return the key XOR-ed when the second player is to move
+     */
+    public long side() {
+        return side;
+    }
+}
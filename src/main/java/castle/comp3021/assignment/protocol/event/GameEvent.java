@@ -0,0 +1,143 @@
+package castle.comp3021.assignment.protocol.event;
+
+import castle.comp3021.assignment.protocol.Move;
+import castle.comp3021.assignment.protocol.Piece;
+import castle.comp3021.assignment.protocol.Player;
+
+/**
+ * An event of a game, published through {@link GameEventBus}. Events are immutable, so subscribers may handle them
+ * on any thread.
+ */
+public final class GameEvent {
+    public enum Type {
+        /**
+         * A piece is moved: {@link #getPlayer()} moved {@link #getPiece()} by {@link #getMove()}
+         */
+        MOVE,
+        /**
+         * A piece is captured: {@link #getPlayer()} captured {@link #getCaptured()} by {@link #getMove()}
+         */
+        CAPTURE,
+        /**
+         * The score of {@link #getPlayer()} changed to {@link #getScore()}
+         */
+        SCORE_CHANGE,
+        /**
+         * It is the turn of {@link #getPlayer()}
+         */
+        TURN_CHANGE,
+        /**
+         * The game is over and {@link #getWinner()} won, or it is drawn if the winner is null; {@link #getPlayer()}
+         * made the last move {@link #getMove()}, or had no available moves if the move is null. A game ended by a
+         * draw rule has a {@link #getReason()}.
+         */
+        GAME_OVER
+    }
+
+    private final Type type;
+
+    /**
+     * Number of moves made in the game when the event happened, including the move of the event if any
+     */
+    private final int numMoves;
+
+    private final Player player;
+
+    private final Piece piece;
+
+    private final Move move;
+
+    private final Piece captured;
+
+    private final int score;
+
+    private final Player winner;
+
+    private final String reason;
+
+    private GameEvent(Type type, int numMoves, Player player, Piece piece, Move move, Piece captured, int score,
+                      Player winner, String reason) {
+        this.type = type;
+        this.numMoves = numMoves;
+        this.player = player;
+        this.piece = piece;
+        this.move = move;
+        this.captured = captured;
+        this.score = score;
+        this.winner = winner;
+        this.reason = reason;
+    }
+
+    /* Factories start */
+    public static GameEvent move(int numMoves, Player player, Piece piece, Move move) {
+        return new GameEvent(Type.MOVE, numMoves, player, piece, move, null, 0, null, null);
+    }
+
+    public static GameEvent capture(int numMoves, Player player, Piece piece, Move move, Piece captured) {
+        return new GameEvent(Type.CAPTURE, numMoves, player, piece, move, captured, 0, null, null);
+    }
+
+    public static GameEvent scoreChange(int numMoves, Player player, int score) {
+        return new GameEvent(Type.SCORE_CHANGE, numMoves, player, null, null, null, score, null, null);
+    }
+
+    public static GameEvent turnChange(int numMoves, Player player) {
+        return new GameEvent(Type.TURN_CHANGE, numMoves, player, null, null, null, 0, null, null);
+    }
+
+    public static GameEvent gameOver(int numMoves, Player player, Move move, Player winner) {
+        return gameOver(numMoves, player, move, winner, null);
+    }
+
+    public static GameEvent gameOver(int numMoves, Player player, Move move, Player winner, String reason) {
+        return new GameEvent(Type.GAME_OVER, numMoves, player, null, move, null, 0, winner, reason);
+    }
+    /* Factories end */
+
+    /* Getters start */
+    public Type getType() {
+        return type;
+    }
+
+    public int getNumMoves() {
+        return numMoves;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public Piece getPiece() {
+        return piece;
+    }
+
+    public Move getMove() {
+        return move;
+    }
+
+    public Piece getCaptured() {
+        return captured;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public Player getWinner() {
+        return winner;
+    }
+
+    /**
+     * @return why the game ended by a draw rule, or null if it ended by the rules of Jeson Mor
+     */
+    public String getReason() {
+        return reason;
+    }
+    /* Getters end */
+
+    @Override
+    public String toString() {
+        return String.format("%s{numMoves=%d, player=%s, move=%s, score=%d, winner=%s}", type, numMoves,
+                player == null ? null : player.getName(), move, score, winner == null ? null : winner.getName());
+    }
+}
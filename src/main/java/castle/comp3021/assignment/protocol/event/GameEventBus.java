@@ -0,0 +1,102 @@
+package castle.comp3021.assignment.protocol.event;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes {@link GameEvent}s to subscribers through {@link java.util.concurrent.Flow}.
+ * <p>
+ * Every subscriber has a bounded buffer and receives events in order on a thread of the executor, so a slow
+ * subscriber does not hold up the game. When the buffer of a subscriber is full, the event is either dropped for that
+ * subscriber and counted in {@link #getDroppedEvents()}, or the game waits until there is room, depending on
+ * how the bus is created.
+ * <p>
+ * Publishing is skipped by {@link castle.comp3021.assignment.protocol.Game} when there are no subscribers, so a game
+ * without subscribers does not create any event.
+ */
+public class GameEventBus implements Flow.Publisher<GameEvent>, AutoCloseable {
+    public static final int DEFAULT_BUFFER_CAPACITY = 256;
+
+    /**
+     * Executor of subscribers by default, with daemon threads so that it does not keep the program alive
+     */
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        var thread = new Thread(runnable, "game-event-subscriber");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final SubmissionPublisher<GameEvent> publisher;
+
+    /**
+     * Whether to drop events for a subscriber with a full buffer, rather than wait
+     */
+    private final boolean dropWhenFull;
+
+    private final LongAdder droppedEvents = new LongAdder();
+
+    /**
+     * Create a bus delivering events on background threads, dropping events for subscribers which fall behind.
+     */
+    public GameEventBus() {
+        this(DEFAULT_EXECUTOR, DEFAULT_BUFFER_CAPACITY, true);
+    }
+
+    /**
+     * @param executor       executor running the subscribers; {@code Runnable::run} delivers events on the thread
+     *                       publishing them, in step with the game
+     * @param bufferCapacity maximum number of events buffered for each subscriber
+     * @param dropWhenFull   whether to drop events for a subscriber with a full buffer, rather than wait
+     */
+    public GameEventBus(Executor executor, int bufferCapacity, boolean dropWhenFull) {
+        this.publisher = new SubmissionPublisher<>(executor, bufferCapacity);
+        this.dropWhenFull = dropWhenFull;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super GameEvent> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    public boolean hasSubscribers() {
+        return publisher.hasSubscribers();
+    }
+
+    /**
+     * Publish an event to all subscribers.
+     *
+     * @param event the event
+     */
+    public void publish(GameEvent event) {
+        if (publisher.isClosed()) {
+            return;
+        }
+        if (dropWhenFull) {
+            publisher.offer(event, (subscriber, dropped) -> {
+                droppedEvents.increment();
+                return false;
+            });
+        } else {
+            publisher.submit(event);
+        }
+    }
+
+    /**
+     * @return number of events dropped for subscribers with full buffers
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Complete all subscribers once they have received the buffered events. Later events are ignored.
+     */
+    @Override
+    public void close() {
+        publisher.close();
+    }
+}
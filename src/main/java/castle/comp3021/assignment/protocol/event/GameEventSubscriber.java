@@ -0,0 +1,57 @@
+package castle.comp3021.assignment.protocol.event;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class of subscribers of {@link GameEventBus}, which takes all events and lets the caller wait until the bus is
+ * closed and all events are handled.
+ */
+public abstract class GameEventSubscriber implements Flow.Subscriber<GameEvent> {
+    private final CountDownLatch completed = new CountDownLatch(1);
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        // the buffer of the bus bounds the pending events, so there is no need to limit the demand
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(GameEvent event) {
+        this.onEvent(event);
+    }
+
+    /**
+     * Handle an event. Events arrive one at a time and in the order they are published.
+     *
+     * @param event the event
+     */
+    protected abstract void onEvent(GameEvent event);
+
+    @Override
+    public void onError(Throwable throwable) {
+        throwable.printStackTrace();
+        completed.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+        completed.countDown();
+    }
+
+    /**
+     * Wait until the bus is closed and all events are handled.
+     *
+     * @param timeoutMillis maximum time to wait in milliseconds
+     * @return whether all events are handled
+     */
+    public boolean awaitCompletion(long timeoutMillis) {
+        try {
+            return completed.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -130,6 +130,11 @@ public class Deserializer {
                             return null;
                         return availableMoves[0];
                     }
+
+                    @Override
+                    public int nextMove(Game game, MoveList availableMoves) {
+                        return availableMoves.get(0);
+                    }
                 };
                 storedScores[i] = Integer.parseInt(parts[1].split(":")[1]);
             }
@@ -203,7 +208,7 @@ public class Deserializer {
         if(placesStr.length != 2)
             throw  new InvalidConfigurationError(String.format("invalid move \"%s\"", moveString));
 
-        return new Move(parsePlace(placesStr[0]),parsePlace(placesStr[1]));
+        return Move.of(parsePlace(placesStr[0]),parsePlace(placesStr[1]));
     }
 
     /**
@@ -225,7 +230,7 @@ public class Deserializer {
 
         y = Integer.parseInt(words[1].substring(0,words[1].indexOf(')')));
 
-        return new Place(x,y);
+        return Place.of(x,y);
     }
 
 
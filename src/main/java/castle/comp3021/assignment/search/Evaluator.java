@@ -0,0 +1,97 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.protocol.BitBoard;
+import castle.comp3021.assignment.protocol.Game;
+
+/**
+ * Static evaluation of Jeson Mor positions.
+ * <p>
+ * The evaluation counts material and rewards knights close to the central square, since a knight leaving the central
+ * square wins the game. Scores are from the point of view of the player to move.
+ */
+public final class Evaluator {
+    /**
+     * Score of a won game. Wins found by search are reported as {@code WIN - ply} so that faster wins score higher.
+     */
+    public static final int WIN = 30000;
+
+    /**
+     * Scores above this value (or below its negation) are wins (or losses)
+     */
+    public static final int WIN_THRESHOLD = WIN - 1000;
+
+    public static final int KNIGHT_VALUE = 300;
+    public static final int ARCHER_VALUE = 200;
+
+    /**
+     * Bonus of a knight per square closer to the central square
+     */
+    public static final int CENTRALITY_BONUS = 4;
+
+    /**
+     * Bonus of a knight standing on the central square
+     */
+    public static final int CENTRAL_KNIGHT_BONUS = 120;
+
+    private Evaluator() {
+    }
+
+    /**
+     * Evaluate the current position.
+     *
+     * @param game the game
+     * @return the score for the player to move
+     */
+    public static int evaluate(Game game) {
+        var bitBoard = game.getBitBoard();
+        var side = game.getCurrentPlayerID();
+        var score = 0;
+        for (int player = 0; player < BitBoard.NUM_PLAYERS; player++) {
+            var value = evaluatePlayer(game, bitBoard, player);
+            score += player == side ? value : -value;
+        }
+        return score;
+    }
+
+    /**
+     * Get the value of the piece on a square, used to order captures.
+     *
+     * @param bitBoard the board
+     * @param square   the square
+     * @return value of the piece, or 0 if the square is empty
+     */
+    public static int pieceValue(BitBoard bitBoard, int square) {
+        switch (bitBoard.typeAt(square)) {
+            case BitBoard.KNIGHT:
+                return KNIGHT_VALUE;
+            case BitBoard.ARCHER:
+                return ARCHER_VALUE;
+            default:
+                return bitBoard.isOccupied(square) ? ARCHER_VALUE : 0;
+        }
+    }
+
+    private static int evaluatePlayer(Game game, BitBoard bitBoard, int player) {
+        var size = bitBoard.getSize();
+        var center = bitBoard.square(game.getCentralPlace());
+        var centerX = bitBoard.x(center);
+        var centerY = bitBoard.y(center);
+        var knights = bitBoard.getTypeOccupancy(BitBoard.KNIGHT);
+        var pieces = bitBoard.getPieces(player);
+        var value = 0;
+        for (int i = 0; i < bitBoard.count(player); i++) {
+            var square = pieces[i];
+            if (!BitBoard.contains(knights, square)) {
+                value += ARCHER_VALUE;
+                continue;
+            }
+            value += KNIGHT_VALUE;
+            var distance = Math.abs(bitBoard.x(square) - centerX) + Math.abs(bitBoard.y(square) - centerY);
+            value += CENTRALITY_BONUS * (size - distance);
+            if (square == center) {
+                value += CENTRAL_KNIGHT_BONUS;
+            }
+        }
+        return value;
+    }
+}
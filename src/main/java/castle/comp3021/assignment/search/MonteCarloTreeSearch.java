@@ -0,0 +1,478 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.protocol.MoveList;
+import castle.comp3021.assignment.textversion.JesonMor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monte Carlo tree search with UCT selection.
+ * <p>
+ * Several threads grow one tree. Each thread walks the tree on its own copy of the game with
+ * {@link JesonMor#makeMove(int)} and {@link JesonMor#unmakeMove()}, plays a random game from the reached leaf and
+ * backs up the result. A visit is counted when a thread enters a node, before its result is known (virtual loss), so
+ * that other threads are steered towards other moves meanwhile.
+ * <p>
+ * The tree is kept between searches: if the new position is found within two plies of the old root, its subtree
+ * becomes the new root.
+ */
+public class MonteCarloTreeSearch {
+    /**
+     * Exploration constant of UCT
+     */
+    public static final double EXPLORATION = Math.sqrt(2);
+
+    /**
+     * Result of a playout which reaches the ply limit with equal evaluation
+     */
+    private static final int DRAW = -1;
+
+    /* Node states start */
+    private static final int UNKNOWN = -2;
+    private static final int NOT_OVER = -1;
+    /* Node states end */
+
+    /**
+     * Maximum number of moves of a playout is this factor times the number of squares; a longer playout is decided
+     * by {@link Evaluator}
+     */
+    private static final int PLAYOUT_LENGTH_FACTOR = 2;
+
+    /**
+     * Maximum depth of the tree
+     */
+    private static final int MAX_TREE_DEPTH = 256;
+
+    /**
+     * A node of the tree, standing for the position after {@link #move}.
+     */
+    private static final class Node {
+        /**
+         * Move leading to the node in packed form, 0 for the root
+         */
+        private final int move;
+
+        /**
+         * Index of the player who made the move
+         */
+        private final int mover;
+
+        /**
+         * Zobrist hash and number of moves of the position, to find it again in the next search
+         */
+        private final long key;
+        private final int numMoves;
+
+        /**
+         * Children, one per available move, or null before expansion
+         */
+        private volatile Node[] children;
+
+        /**
+         * Index of the winner if the game is over at this node, {@link #NOT_OVER} or {@link #UNKNOWN}
+         */
+        private volatile int winner = UNKNOWN;
+
+        private final AtomicInteger visits = new AtomicInteger();
+
+        /**
+         * Twice the number of playouts won by {@link #mover}, plus the number of draws
+         */
+        private final AtomicLong reward = new AtomicLong();
+
+        private Node(int move, int mover, long key, int numMoves) {
+            this.move = move;
+            this.mover = mover;
+            this.key = key;
+            this.numMoves = numMoves;
+        }
+    }
+
+    private final int numThreads;
+
+    /**
+     * Pool of search threads, created on first use
+     */
+    private ForkJoinPool pool;
+
+    private Node root;
+
+    private volatile boolean stopped;
+
+    /* Statistics of the last search start */
+    private long playouts;
+    private long elapsedMillis;
+    private int reusedVisits;
+    /* Statistics of the last search end */
+
+    /**
+     * @param numThreads number of search threads
+     */
+    public MonteCarloTreeSearch(int numThreads) {
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException("number of search threads must be positive");
+        }
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Search the current position of a game until the time or the playout budget is used up.
+     *
+     * @param game            the game, which is not modified
+     * @param timeLimitMillis time limit in milliseconds, or 0 for no limit
+     * @param maxPlayouts     maximum number of playouts, or 0 for no limit
+     * @return the most visited move in packed form, or -1 if there is no available move
+     */
+    public int search(JesonMor game, long timeLimitMillis, long maxPlayouts) {
+        if (timeLimitMillis <= 0 && maxPlayouts <= 0) {
+            throw new IllegalArgumentException("either a time limit or a playout limit is required");
+        }
+        var startTime = System.nanoTime();
+        var deadline = timeLimitMillis > 0 ? startTime + timeLimitMillis * 1_000_000 : Long.MAX_VALUE;
+        var budget = maxPlayouts > 0 ? maxPlayouts : Long.MAX_VALUE;
+        stopped = false;
+
+        root = this.findRoot(game);
+        reusedVisits = root.visits.get();
+        root.winner = NOT_OVER;
+        var counter = new AtomicLong();
+        if (numThreads == 1) {
+            new Worker(copyOf(game), counter, deadline, budget).run();
+        } else {
+            var pool = this.getPool();
+            var tasks = new ForkJoinTask<?>[numThreads];
+            for (int i = 0; i < numThreads; i++) {
+                tasks[i] = pool.submit(new Worker(copyOf(game), counter, deadline, budget));
+            }
+            for (var task : tasks) {
+                task.join();
+            }
+        }
+        playouts = Math.min(counter.get(), budget);
+        elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+        var children = root.children;
+        if (children == null || children.length == 0) {
+            return -1;
+        }
+        return mostVisited(children).move;
+    }
+
+    /**
+     * Stop the running search as soon as possible. This can be called from another thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Shut down the search threads. The next search creates them again.
+     */
+    public synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Forget the tree, e.g. when a new game starts.
+     */
+    public void reset() {
+        root = null;
+    }
+
+    /* Statistics start */
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return number of playouts per second of the last search
+     */
+    public long getPlayoutsPerSecond() {
+        return playouts * 1000 / Math.max(1, elapsedMillis);
+    }
+
+    /**
+     * @return number of visits of the root kept from the previous search
+     */
+    public int getReusedVisits() {
+        return reusedVisits;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+    /* Statistics end */
+
+    /**
+     * Win rate of the most visited move in the last search, for the player to move.
+     *
+     * @return win rate between 0 and 1, or 0.5 if unknown
+     */
+    public double getWinRate() {
+        var children = root == null ? null : root.children;
+        if (children == null || children.length == 0) {
+            return 0.5;
+        }
+        var best = mostVisited(children);
+        return best.visits.get() == 0 ? 0.5 : best.reward.get() / (2.0 * best.visits.get());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("playouts %d (reused %d) time %dms playouts/s %d win rate %.3f", playouts, reusedVisits,
+                elapsedMillis, getPlayoutsPerSecond(), getWinRate());
+    }
+
+    /**
+     * Find the current position among the old root and its children and grandchildren, or create a new root.
+     */
+    private Node findRoot(JesonMor game) {
+        var key = game.getZobristKey();
+        var numMoves = game.getNumMoves();
+        if (root != null) {
+            if (root.key == key && root.numMoves == numMoves) {
+                return root;
+            }
+            var children = root.children;
+            if (children != null) {
+                for (var child : children) {
+                    if (child.key == key && child.numMoves == numMoves) {
+                        return child;
+                    }
+                    var grandchildren = child.children;
+                    if (grandchildren == null) {
+                        continue;
+                    }
+                    for (var grandchild : grandchildren) {
+                        if (grandchild.key == key && grandchild.numMoves == numMoves) {
+                            return grandchild;
+                        }
+                    }
+                }
+            }
+        }
+        var mover = (game.getCurrentPlayerID() + 1) % 2;
+        return new Node(0, mover, key, numMoves);
+    }
+
+    private synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(numThreads);
+        }
+        return pool;
+    }
+
+    /**
+     * Copy a game for the playouts, without move records and the move cache, which it never reads.
+     */
+    private static JesonMor copyOf(JesonMor game) {
+        try {
+            var copy = game.clone();
+            copy.setRecordMoves(false);
+            copy.setCacheMoves(false);
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Runs playouts on its own copy of the game until the budget is used up.
+     */
+    private final class Worker implements Runnable {
+        private final JesonMor game;
+        private final AtomicLong counter;
+        private final long deadline;
+        private final long budget;
+
+        private final Node[] path = new Node[MAX_TREE_DEPTH + 1];
+        private final MoveList moves = new MoveList();
+        private final int maxPlayoutLength;
+
+        private Worker(JesonMor game, AtomicLong counter, long deadline, long budget) {
+            this.game = game;
+            this.counter = counter;
+            this.deadline = deadline;
+            this.budget = budget;
+            var size = game.getConfiguration().getSize();
+            this.maxPlayoutLength = PLAYOUT_LENGTH_FACTOR * size * size;
+        }
+
+        @Override
+        public void run() {
+            while (!stopped && counter.getAndIncrement() < budget) {
+                this.iterate();
+                if (deadline != Long.MAX_VALUE && System.nanoTime() >= deadline) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Select a leaf, expand it, play out from it and back up the result.
+         */
+        private void iterate() {
+            var node = root;
+            node.visits.incrementAndGet();
+            path[0] = node;
+            var depth = 0;
+            while (node.winner == NOT_OVER && depth < MAX_TREE_DEPTH) {
+                var children = node.children;
+                if (children == null) {
+                    if (node != root && node.visits.get() <= 1) {
+                        // play out from a leaf at its first visit
+                        break;
+                    }
+                    children = this.expand(node);
+                }
+                if (children.length == 0) {
+                    node.winner = this.noMovesWinner();
+                    break;
+                }
+                node = select(node, children);
+                var winner = this.play(node.move);
+                if (node.winner == UNKNOWN) {
+                    node.winner = winner;
+                }
+                node.visits.incrementAndGet();
+                path[++depth] = node;
+            }
+
+            var winner = node.winner >= 0 ? node.winner : this.playout();
+            for (int i = 1; i <= depth; i++) {
+                var reward = winner == DRAW ? 1 : winner == path[i].mover ? 2 : 0;
+                path[i].reward.addAndGet(reward);
+            }
+            for (int i = 0; i < depth; i++) {
+                game.unmakeMove();
+            }
+        }
+
+        /**
+         * Make a move.
+         *
+         * @return index of the winner if the move ends the game, otherwise {@link #NOT_OVER}
+         */
+        private int play(int packed) {
+            var mover = game.getCurrentPlayer();
+            var move = game.toMove(packed);
+            var piece = game.getPiece(move.getSource());
+            game.makeMove(move);
+            var winner = game.getWinner(mover, piece, move);
+            return winner == null ? NOT_OVER : game.getPlayerIndex(winner);
+        }
+
+        private Node[] expand(Node node) {
+            synchronized (node) {
+                if (node.children == null) {
+                    game.getAvailableMoves(game.getCurrentPlayer(), moves);
+                    var mover = game.getCurrentPlayerID();
+                    var children = new Node[moves.size()];
+                    for (int i = 0; i < children.length; i++) {
+                        var packed = moves.get(i);
+                        game.makeMove(packed);
+                        children[i] = new Node(packed, mover, game.getZobristKey(), game.getNumMoves());
+                        game.unmakeMove();
+                    }
+                    node.children = children;
+                }
+                return node.children;
+            }
+        }
+
+        /**
+         * Play random moves until the game is over.
+         *
+         * @return index of the winner, or {@link #DRAW}
+         */
+        private int playout() {
+            var random = ThreadLocalRandom.current();
+            var winner = DRAW;
+            var length = 0;
+            while (length < maxPlayoutLength) {
+                var mover = game.getCurrentPlayer();
+                game.getAvailableMoves(mover, moves);
+                if (moves.isEmpty()) {
+                    winner = this.noMovesWinner();
+                    break;
+                }
+                var move = game.toMove(moves.get(random.nextInt(moves.size())));
+                var piece = game.getPiece(move.getSource());
+                game.makeMove(move);
+                length++;
+                var player = game.getWinner(mover, piece, move);
+                if (player != null) {
+                    winner = game.getPlayerIndex(player);
+                    break;
+                }
+            }
+            if (length == maxPlayoutLength) {
+                var score = Evaluator.evaluate(game);
+                var side = game.getCurrentPlayerID();
+                winner = score > 0 ? side : score < 0 ? 1 - side : DRAW;
+            }
+            for (int i = 0; i < length; i++) {
+                game.unmakeMove();
+            }
+            return winner;
+        }
+
+        /**
+         * As in {@link JesonMor#start()}: the player with the lower score wins, and the player to move wins a tie.
+         */
+        private int noMovesWinner() {
+            var players = game.getConfiguration().getPlayers();
+            if (players[0].getScore() < players[1].getScore()) {
+                return 0;
+            } else if (players[0].getScore() > players[1].getScore()) {
+                return 1;
+            }
+            return game.getCurrentPlayerID();
+        }
+    }
+
+    private static Node mostVisited(Node[] children) {
+        var best = children[0];
+        for (var child : children) {
+            if (child.visits.get() > best.visits.get()) {
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Select the child with the highest UCT value. Unvisited children are selected first.
+     */
+    private static Node select(Node parent, Node[] children) {
+        var logVisits = Math.log(Math.max(1, parent.visits.get()));
+        Node best = null;
+        var bestValue = Double.NEGATIVE_INFINITY;
+        for (var child : children) {
+            var visits = child.visits.get();
+            double value;
+            if (visits == 0) {
+                // break ties between unvisited children randomly, so that threads expand different ones
+                value = Double.MAX_VALUE / 2 + ThreadLocalRandom.current().nextDouble() * Double.MAX_VALUE / 4;
+            } else {
+                value = child.reward.get() / (2.0 * visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+            }
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+}
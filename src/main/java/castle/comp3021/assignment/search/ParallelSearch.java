@@ -0,0 +1,131 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.textversion.JesonMor;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Lazy SMP: several threads search the same position, each with its own {@link Search} on its own copy of the game,
+ * and share one {@link TranspositionTable}. The threads do not communicate other than through the table, where each
+ * finds the results of the others.
+ * <p>
+ * The threads run on a dedicated {@link ForkJoinPool}, so that they do not compete with other users of the common
+ * pool. The result is the one of the main thread; the helpers are stopped when the main thread finishes. With one
+ * thread, a plain {@link Search} is run on the calling thread, which is deterministic for a fixed depth.
+ */
+public class ParallelSearch {
+    private final TranspositionTable table;
+
+    private final int numThreads;
+
+    /**
+     * Pool of search threads, created on first use
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * Searches of the running search, one per thread
+     */
+    private volatile Search[] searches = new Search[0];
+
+    /**
+     * @param table      transposition table shared by all threads
+     * @param numThreads number of search threads
+     */
+    public ParallelSearch(TranspositionTable table, int numThreads) {
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException("number of search threads must be positive");
+        }
+        this.table = table;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Search the current position of a game.
+     *
+     * @param game            the game, which is not modified
+     * @param maxDepth        maximum depth of iterative deepening
+     * @param timeLimitMillis time limit in milliseconds
+     * @param listener        called with the result of every iteration of the main thread, may be null
+     * @return the result of the main thread, with the nodes of all threads
+     */
+    public SearchResult search(JesonMor game, int maxDepth, long timeLimitMillis, Consumer<SearchResult> listener) {
+        var current = new Search[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            current[i] = new Search(copyOf(game), table);
+            current[i].setHelperId(i);
+        }
+        searches = current;
+        if (numThreads == 1) {
+            return current[0].search(maxDepth, timeLimitMillis, listener);
+        }
+
+        var pool = this.getPool();
+        var tasks = new ArrayList<ForkJoinTask<SearchResult>>(numThreads);
+        tasks.add(pool.submit(() -> current[0].search(maxDepth, timeLimitMillis, listener)));
+        for (int i = 1; i < numThreads; i++) {
+            var helper = current[i];
+            tasks.add(pool.submit(() -> helper.search(maxDepth, timeLimitMillis, null)));
+        }
+        var result = tasks.get(0).join();
+        var nodes = result.getNodes();
+        for (int i = 1; i < numThreads; i++) {
+            current[i].stop();
+            nodes += tasks.get(i).join().getNodes();
+        }
+        return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(), nodes,
+                result.getElapsedMillis(), result.getPrincipalVariation());
+    }
+
+    /**
+     * Stop the running search as soon as possible. This can be called from another thread.
+     */
+    public void stop() {
+        for (var search : searches) {
+            search.stop();
+        }
+    }
+
+    /**
+     * Shut down the search threads. The next search creates them again.
+     */
+    public synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    private synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            // worker threads of a ForkJoinPool are daemon threads, so an idle pool does not keep the program alive
+            pool = new ForkJoinPool(numThreads);
+        }
+        return pool;
+    }
+
+    /**
+     * Copy a game for the search, without move records and the move cache, which it never reads.
+     */
+    private static JesonMor copyOf(JesonMor game) {
+        try {
+            var copy = game.clone();
+            copy.setRecordMoves(false);
+            copy.setCacheMoves(false);
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
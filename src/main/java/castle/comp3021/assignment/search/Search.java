@@ -0,0 +1,407 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.piece.KnightTables;
+import castle.comp3021.assignment.protocol.BitBoard;
+import castle.comp3021.assignment.protocol.MoveIterator;
+import castle.comp3021.assignment.protocol.MoveList;
+import castle.comp3021.assignment.protocol.Player;
+import castle.comp3021.assignment.textversion.JesonMor;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Iterative deepening negamax search with alpha-beta pruning.
+ * <p>
+ * The search runs in place on a {@link JesonMor} through {@link JesonMor#makeMove(castle.comp3021.assignment.protocol.Move)}
+ * and {@link JesonMor#unmakeMove()}, so the game given to it should be a copy of the real game. Moves are generated
+ * lazily in stages by a {@link MoveIterator}: the best move stored in the {@link TranspositionTable}, captures, killer
+ * moves, moves into or out of the central square and the other moves, so that a cutoff skips generating the rest.
+ * At the horizon, a quiescence search follows the captures until the position is quiet, skipping captures which lose
+ * material by a static exchange estimate, so that positions are not evaluated in the middle of an exchange.
+ * <p>
+ * An instance is used by one thread at a time; several instances may share one {@link TranspositionTable}, as
+ * {@link ParallelSearch} does.
+ */
+public class Search {
+    /**
+     * Maximum depth of the search
+     */
+    public static final int MAX_PLY = 64;
+
+    private static final int INFINITY = Evaluator.WIN + 1;
+
+    /**
+     * The time is checked every {@code NODES_PER_CHECK} nodes
+     */
+    private static final int NODES_PER_CHECK = 1024;
+
+    private final JesonMor game;
+
+    private final TranspositionTable table;
+
+    /**
+     * Move iterators of each ply, reused between nodes
+     */
+    private final MoveIterator[] iterators = new MoveIterator[MAX_PLY + 1];
+
+    /**
+     * Triangular table of principal variations: {@code pv[ply]} holds the best line from {@code ply}
+     */
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+
+    /**
+     * Two quiet moves per ply which recently caused a beta cutoff
+     */
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+
+    private long nodes;
+
+    private long deadline;
+
+    private boolean aborted;
+
+    private volatile boolean stopped = false;
+
+    /**
+     * Index of a helper thread in {@link ParallelSearch}, or 0 for the main search
+     */
+    private int helperId = 0;
+
+    public Search(JesonMor game, TranspositionTable table) {
+        this.game = game;
+        this.table = table;
+        for (int i = 0; i < iterators.length; i++) {
+            iterators[i] = new MoveIterator();
+        }
+    }
+
+    /**
+     * Search the current position.
+     *
+     * @param maxDepth        maximum depth of iterative deepening
+     * @param timeLimitMillis time limit in milliseconds; the search returns the best move of the last completed
+     *                        iteration when the time is up
+     * @param listener        called with the result of every completed iteration, may be null
+     * @return the result of the deepest completed iteration
+     */
+    public SearchResult search(int maxDepth, long timeLimitMillis, Consumer<SearchResult> listener) {
+        var startTime = System.nanoTime();
+        deadline = startTime + timeLimitMillis * 1_000_000;
+        nodes = 0;
+        aborted = false;
+        if (helperId == 0) {
+            // a helper may be stopped before it starts, so only the main search clears the flag
+            stopped = false;
+            table.newSearch();
+        }
+        for (var killer : killers) {
+            Arrays.fill(killer, 0);
+        }
+
+        var rootMoves = new MoveList();
+        game.getAvailableMoves(game.getCurrentPlayer(), rootMoves);
+        if (rootMoves.isEmpty()) {
+            return new SearchResult(-1, noMovesScore(0), 0, 0, 0, new int[0]);
+        }
+        var result = new SearchResult(rootMoves.get(0), 0, 0, 0, 0, new int[]{rootMoves.get(0)});
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+            if (helperId % 2 == 1 && depth % 2 == 1 && depth > 1 && depth < maxDepth) {
+                // odd helpers skip odd depths, so that threads work on different depths
+                continue;
+            }
+            var score = negamax(depth, -INFINITY, INFINITY, 0);
+            if (aborted) {
+                break;
+            }
+            var elapsed = (System.nanoTime() - startTime) / 1_000_000;
+            result = new SearchResult(pv[0][0], score, depth, nodes, elapsed, Arrays.copyOf(pv[0], pvLength[0]));
+            if (listener != null) {
+                listener.accept(result);
+            }
+            if (Math.abs(score) >= Evaluator.WIN_THRESHOLD) {
+                break;
+            }
+        }
+        var elapsed = (System.nanoTime() - startTime) / 1_000_000;
+        return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(), nodes, elapsed,
+                result.getPrincipalVariation());
+    }
+
+    /**
+     * Stop the running search as soon as possible. This can be called from another thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Make this search a helper of {@link ParallelSearch}: it does not start a new generation of the table, and
+     * may skip some depths of iterative deepening.
+     *
+     * @param helperId positive index of the helper
+     */
+    void setHelperId(int helperId) {
+        this.helperId = helperId;
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        if (++nodes % NODES_PER_CHECK == 0 && (stopped || System.nanoTime() >= deadline)) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+        if (depth <= 0 || ply >= MAX_PLY) {
+            return quiesce(alpha, beta, ply);
+        }
+
+        var key = game.getZobristKey();
+        // the key does not tell whether captures and wins are still suppressed, so scores found within the protection
+        // are neither used nor stored; only the best move is kept, at depth 0 so that it never causes a cutoff
+        var useTable = game.getNumMoves() > game.getConfiguration().getNumMovesProtection();
+        var ttMove = 0;
+        var entry = table.probe(key);
+        if (entry != 0) {
+            ttMove = TranspositionTable.move(entry);
+            if (useTable && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                var ttScore = fromTable(TranspositionTable.score(entry), ply);
+                var bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && ttScore >= beta
+                        || bound == TranspositionTable.UPPER && ttScore <= alpha) {
+                    return ttScore;
+                }
+            }
+        }
+
+        var moves = iterators[ply];
+        moves.reset(game, game.getCurrentPlayerID(), ttMove, killers[ply][0], killers[ply][1]);
+
+        var originalAlpha = alpha;
+        var bestScore = -INFINITY;
+        var bestMove = 0;
+        var numMoves = 0;
+        for (int packed = moves.next(); packed != MoveIterator.NONE; packed = moves.next()) {
+            numMoves++;
+            var score = searchMove(packed, depth, alpha, beta, ply);
+            if (aborted) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = packed;
+                if (score > alpha) {
+                    alpha = score;
+                    pv[ply][ply] = packed;
+                    System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+                    pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+                    if (alpha >= beta) {
+                        if (!MoveList.isCapture(packed) && killers[ply][0] != packed) {
+                            killers[ply][1] = killers[ply][0];
+                            killers[ply][0] = packed;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        if (numMoves == 0) {
+            return noMovesScore(ply);
+        }
+
+        int bound;
+        if (bestScore <= originalAlpha) {
+            bound = TranspositionTable.UPPER;
+        } else if (bestScore >= beta) {
+            bound = TranspositionTable.LOWER;
+        } else {
+            bound = TranspositionTable.EXACT;
+        }
+        if (useTable) {
+            table.store(key, depth, bound, toTable(bestScore, ply), bestMove);
+        } else {
+            table.store(key, 0, TranspositionTable.UPPER, 0, bestMove);
+        }
+        return bestScore;
+    }
+
+    /**
+     * Search only the captures of the position. The player to move may also stand pat, i.e. take the static
+     * evaluation instead of capturing, which bounds the score from below.
+     */
+    private int quiesce(int alpha, int beta, int ply) {
+        var standPat = Evaluator.evaluate(game);
+        if (ply >= MAX_PLY || standPat >= beta) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+        var bestScore = standPat;
+        var moves = iterators[ply];
+        moves.resetCaptures(game, game.getCurrentPlayerID());
+        for (int packed = moves.next(); packed != MoveIterator.NONE; packed = moves.next()) {
+            if (staticExchange(packed) < 0) {
+                continue;
+            }
+            var score = searchMove(packed, 0, alpha, beta, ply);
+            if (aborted) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    /**
+     * Static exchange estimate of a capture: the value of the captured piece, less the value of the capturing piece if
+     * the opponent can capture it back. Captures which win the game are never negative.
+     */
+    private int staticExchange(int move) {
+        var bitBoard = game.getBitBoard();
+        var source = MoveList.source(move);
+        var destination = MoveList.destination(move);
+        var gain = Evaluator.pieceValue(bitBoard, destination);
+        var opponent = 1 - game.getCurrentPlayerID();
+        if (bitBoard.count(opponent) == 1 || bitBoard.typeAt(source) == BitBoard.KNIGHT
+                && source == bitBoard.square(game.getCentralPlace())) {
+            return gain;
+        }
+        if (isAttacked(bitBoard, opponent, source, destination)) {
+            gain -= Evaluator.pieceValue(bitBoard, source);
+        }
+        return gain;
+    }
+
+    /**
+     * Check whether a player attacks a square after a piece moves onto it from {@code source}, which is then empty.
+     */
+    private static boolean isAttacked(BitBoard bitBoard, int player, int source, int square) {
+        var size = bitBoard.getSize();
+        var occupied = bitBoard.getOccupied();
+        var pieces = bitBoard.getPlayerOccupancy(player);
+        var knights = bitBoard.getTypeOccupancy(BitBoard.KNIGHT);
+        var tables = KnightTables.of(size);
+        // knight steps are symmetric, so the attacking knights are a knight step away from the square
+        for (int entry = tables.start(square); entry < tables.end(square); entry++) {
+            var knight = tables.target(entry);
+            if (!BitBoard.contains(pieces, knight) || !BitBoard.contains(knights, knight)) {
+                continue;
+            }
+            for (int back = tables.start(knight); back < tables.end(knight); back++) {
+                if (tables.target(back) == square) {
+                    var leg = tables.leg(back);
+                    if (leg == source || !BitBoard.contains(occupied, leg)) {
+                        return true;
+                    }
+                    break;
+                }
+            }
+        }
+        var archers = bitBoard.getTypeOccupancy(BitBoard.ARCHER);
+        var x = bitBoard.x(square);
+        var y = bitBoard.y(square);
+        return isArcherBehindScreen(occupied, pieces, archers, source, square, -size, x)
+                || isArcherBehindScreen(occupied, pieces, archers, source, square, size, size - 1 - x)
+                || isArcherBehindScreen(occupied, pieces, archers, source, square, -1, y)
+                || isArcherBehindScreen(occupied, pieces, archers, source, square, 1, size - 1 - y);
+    }
+
+    /**
+     * Check whether the second piece along a ray from a square, ignoring {@code source}, is an archer of a player.
+     *
+     * @param step   difference of square indexes between neighbours on the ray
+     * @param length number of squares on the ray
+     */
+    private static boolean isArcherBehindScreen(long[] occupied, long[] pieces, long[] archers, int source, int square,
+                                                int step, int length) {
+        var screened = false;
+        for (int i = 0; i < length; i++) {
+            square += step;
+            if (square == source || !BitBoard.contains(occupied, square)) {
+                continue;
+            }
+            if (screened) {
+                return BitBoard.contains(pieces, square) && BitBoard.contains(archers, square);
+            }
+            screened = true;
+        }
+        return false;
+    }
+
+    /**
+     * Make a move, search the resulting position and unmake the move.
+     *
+     * @return score of the move for the player making it
+     */
+    private int searchMove(int packed, int depth, int alpha, int beta, int ply) {
+        var move = game.toMove(packed);
+        var mover = game.getCurrentPlayer();
+        var piece = game.getPiece(move.getSource());
+        game.makeMove(move);
+        int score;
+        var winner = game.getWinner(mover, piece, move);
+        if (winner != null) {
+            score = winner.equals(mover) ? Evaluator.WIN - ply - 1 : -(Evaluator.WIN - ply - 1);
+            pvLength[ply + 1] = ply + 1;
+        } else {
+            score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+        }
+        game.unmakeMove();
+        return score;
+    }
+
+    /**
+     * Score of a position where the player to move has no available moves: as in {@link JesonMor#start()}, the player
+     * with the lower score wins, and the player to move wins a tie.
+     */
+    private int noMovesScore(int ply) {
+        var players = game.getConfiguration().getPlayers();
+        var side = game.getCurrentPlayerID();
+        Player winner;
+        if (players[0].getScore() < players[1].getScore()) {
+            winner = players[0];
+        } else if (players[0].getScore() > players[1].getScore()) {
+            winner = players[1];
+        } else {
+            winner = players[side];
+        }
+        return winner == players[side] ? Evaluator.WIN - ply : -(Evaluator.WIN - ply);
+    }
+
+    /**
+     * Win scores depend on the ply they are found at, so they are stored relative to the position in the table.
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= Evaluator.WIN_THRESHOLD) {
+            return score + ply;
+        } else if (score <= -Evaluator.WIN_THRESHOLD) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= Evaluator.WIN_THRESHOLD) {
+            return score - ply;
+        } else if (score <= -Evaluator.WIN_THRESHOLD) {
+            return score + ply;
+        }
+        return score;
+    }
+}
@@ -0,0 +1,92 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.player.RandomPlayer;
+import castle.comp3021.assignment.protocol.Configuration;
+import castle.comp3021.assignment.protocol.MoveList;
+import castle.comp3021.assignment.protocol.Player;
+import castle.comp3021.assignment.textversion.JesonMor;
+
+import java.util.Random;
+
+/**
+ * Benchmark of {@link ParallelSearch}: searches a fixed position to a fixed depth with 1, 2, 4, ... threads and
+ * reports the time to depth and the speed-up over one thread.
+ * <p>
+ * Usage: {@code SearchBenchmark [size] [depth] [max threads] [plies]}. The position is the default layout of the
+ * text version after {@code plies} moves chosen by a random generator with a fixed seed.
+ */
+public class SearchBenchmark {
+    private static final long SEED = 3021;
+
+    /**
+     * Time limit of each search, long enough to always reach the depth
+     */
+    private static final long TIME_LIMIT = 24L * 60 * 60 * 1000;
+
+    private static final int HASH_SIZE = 64;
+
+    /**
+     * Create the benchmark position.
+     *
+     * @param size  size of gameboard
+     * @param plies number of random moves played from the initial position
+     * @return the game
+     */
+    public static JesonMor createPosition(int size, int plies) {
+        var white = new RandomPlayer("White");
+        var black = new RandomPlayer("Black");
+        var configuration = new Configuration(size, new Player[]{white, black}, 1);
+        for (int i = 0; i < size; i++) {
+            configuration.addInitialPiece(i % 2 == 0 ? new Knight(black) : new Archer(black), i, size - 1);
+            configuration.addInitialPiece(i % 2 == 0 ? new Knight(white) : new Archer(white), i, 0);
+        }
+        var game = new JesonMor(configuration);
+        var random = new Random(SEED);
+        var moves = new MoveList();
+        for (int i = 0; i < plies; i++) {
+            var player = game.getCurrentPlayer();
+            game.getAvailableMoves(player, moves);
+            if (moves.isEmpty()) {
+                break;
+            }
+            var move = game.toMove(moves.get(random.nextInt(moves.size())));
+            var piece = game.getPiece(move.getSource());
+            game.makeMove(move);
+            if (game.getWinner(player, piece, move) != null) {
+                // do not benchmark a finished game
+                game.unmakeMove();
+                break;
+            }
+        }
+        return game;
+    }
+
+    public static void main(String[] args) {
+        var size = args.length > 0 ? Integer.parseInt(args[0]) : 9;
+        var depth = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        var maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        var plies = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+
+        var game = createPosition(size, plies);
+        System.out.println(game.getConfiguration().getPlayers()[game.getCurrentPlayerID()].getName()
+                + " to move after " + game.getNumMoves() + " moves on a " + size + "x" + size + " board, depth "
+                + depth);
+
+        long baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads ? Math.min(threads * 2,
+                maxThreads) : threads + 1) {
+            var search = new ParallelSearch(new TranspositionTable(HASH_SIZE), threads);
+            var result = search.search(game, depth, TIME_LIMIT, null);
+            search.shutdown();
+            if (threads == 1) {
+                baseline = Math.max(1, result.getElapsedMillis());
+            }
+            System.out.printf("threads %2d time %6dms nodes %10d nps %9d speed-up %.2f best %s%n", threads,
+                    result.getElapsedMillis(), result.getNodes(), result.getNodesPerSecond(),
+                    (double) baseline / Math.max(1, result.getElapsedMillis()),
+                    game.toMove(result.getBestMove()));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.protocol.Game;
+import castle.comp3021.assignment.protocol.MoveList;
+
+import java.util.StringJoiner;
+
+/**
+ * Result and statistics of a search, for choosing the move and for monitoring.
+ */
+public class SearchResult {
+    /**
+     * Best move in packed form (see {@link MoveList}), or -1 if there is no legal move
+     */
+    private final int bestMove;
+
+    /**
+     * Score of the best move for the player to move
+     */
+    private final int score;
+
+    /**
+     * Depth of the last completed iteration
+     */
+    private final int depth;
+
+    /**
+     * Number of positions visited
+     */
+    private final long nodes;
+
+    /**
+     * Time spent in milliseconds
+     */
+    private final long elapsedMillis;
+
+    /**
+     * Principal variation in packed form, starting with the best move
+     */
+    private final int[] principalVariation;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long elapsedMillis, int[] principalVariation) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedMillis = elapsedMillis;
+        this.principalVariation = principalVariation;
+    }
+
+    /* Getters start */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public int[] getPrincipalVariation() {
+        return principalVariation;
+    }
+    /* Getters end */
+
+    /**
+     * @return number of visited positions per second
+     */
+    public long getNodesPerSecond() {
+        return nodes * 1000 / Math.max(1, elapsedMillis);
+    }
+
+    /**
+     * Format the result as a one-line report, with moves in the notation of the console player, e.g. {@code a1->b3}.
+     *
+     * @param game the game searched, used to convert moves
+     * @return the report
+     */
+    public String format(Game game) {
+        var pv = new StringJoiner(" ");
+        for (var move : principalVariation) {
+            var converted = game.toMove(move);
+            pv.add(formatPlace(converted.getSource().x(), converted.getSource().y()) + "->"
+                    + formatPlace(converted.getDestination().x(), converted.getDestination().y()));
+        }
+        return String.format("depth %d score %d nodes %d time %dms nps %d pv %s",
+                depth, score, nodes, elapsedMillis, getNodesPerSecond(), pv);
+    }
+
+    private static String formatPlace(int x, int y) {
+        return String.valueOf((char) ('a' + x)) + (y + 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("depth %d score %d nodes %d time %dms nps %d", depth, score, nodes, elapsedMillis,
+                getNodesPerSecond());
+    }
+}
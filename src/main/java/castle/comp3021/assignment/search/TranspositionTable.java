@@ -0,0 +1,243 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.protocol.MoveList;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A fixed-size transposition table stored off-heap in direct {@link ByteBuffer}s, shared by search threads without
+ * locks.
+ * <p>
+ * Each entry takes 16 bytes: the entry data and the position hash XOR-ed with the data. A probe accepts an entry only
+ * if XOR-ing both words gives back the hash, so an entry torn by two threads writing at the same time is simply seen
+ * as a miss. The data word packs:
+ * <pre>
+ * bits  0-20: best move, packed as in {@link MoveList}
+ * bits 21-36: score (signed 16 bits)
+ * bits 37-44: depth
+ * bits 45-46: bound type ({@link #EXACT}, {@link #LOWER} or {@link #UPPER})
+ * bits 47-54: age, the search generation when the entry was stored
+ * </pre>
+ * Entries are grouped in buckets of {@link #BUCKET_SIZE} (one cache line). A store replaces the entry of the same
+ * position, otherwise the entry with the lowest depth after penalising older generations.
+ */
+public class TranspositionTable {
+    /**
+     * Bound types of stored scores
+     */
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    /**
+     * Number of entries in a bucket
+     */
+    public static final int BUCKET_SIZE = 4;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_BYTES = BUCKET_SIZE * ENTRY_BYTES;
+
+    /**
+     * Each buffer holds at most 2^24 buckets (1 GB), as a {@link ByteBuffer} is indexed by int.
+     */
+    private static final int SEGMENT_SHIFT = 24;
+
+    private static final int MOVE_BITS = 21;
+    private static final int SCORE_SHIFT = MOVE_BITS;
+    private static final int DEPTH_SHIFT = SCORE_SHIFT + 16;
+    private static final int BOUND_SHIFT = DEPTH_SHIFT + 8;
+    private static final int AGE_SHIFT = BOUND_SHIFT + 2;
+
+    /**
+     * Atomic (opaque) 64-bit access to direct buffers
+     */
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.nativeOrder());
+
+    private final ByteBuffer[] segments;
+
+    /**
+     * Mask of bucket indexes, the number of buckets being a power of 2
+     */
+    private final long bucketMask;
+
+    /**
+     * Current search generation
+     */
+    private volatile int generation = 0;
+
+    /**
+     * Create a table.
+     *
+     * @param sizeMB size of the table in megabytes, rounded down to a power of 2
+     */
+    public TranspositionTable(int sizeMB) {
+        if (sizeMB <= 0) {
+            throw new IllegalArgumentException("size of transposition table must be positive");
+        }
+        var numBuckets = Long.highestOneBit(((long) sizeMB << 20) / BUCKET_BYTES);
+        this.bucketMask = numBuckets - 1;
+        var bucketsPerSegment = Math.min(numBuckets, 1L << SEGMENT_SHIFT);
+        this.segments = new ByteBuffer[(int) (numBuckets / bucketsPerSegment)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect((int) (bucketsPerSegment * BUCKET_BYTES))
+                    .order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /* Entry data packing start */
+    public static int move(long data) {
+        return (int) (data & ((1L << MOVE_BITS) - 1));
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> SCORE_SHIFT);
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> BOUND_SHIFT) & 0x3);
+    }
+
+    private static int age(long data) {
+        return (int) ((data >>> AGE_SHIFT) & 0xFF);
+    }
+    /* Entry data packing end */
+
+    /**
+     * Start a new search, so that entries of older searches are replaced more easily.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Look up a position.
+     *
+     * @param key Zobrist hash of the position
+     * @return the entry data, or 0 if the position is not found
+     */
+    public long probe(long key) {
+        var bucket = bucketOf(key);
+        var buffer = segments[segmentOf(bucket)];
+        var offset = offsetOf(bucket);
+        for (int i = 0; i < BUCKET_SIZE; i++, offset += ENTRY_BYTES) {
+            var data = (long) LONGS.getOpaque(buffer, offset + 8);
+            var check = (long) LONGS.getOpaque(buffer, offset);
+            if (data != 0 && (check ^ data) == key) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Store the search result of a position.
+     *
+     * @param key   Zobrist hash of the position
+     * @param depth remaining depth of the search, clamped to [0, 255]
+     * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     * @param score score of the position, clamped to 16 bits
+     * @param move  best move in packed form, or 0 if unknown
+     */
+    public void store(long key, int depth, int bound, int score, int move) {
+        var bucket = bucketOf(key);
+        var buffer = segments[segmentOf(bucket)];
+        var base = offsetOf(bucket);
+        var age = generation;
+        var victim = base;
+        var victimValue = Integer.MAX_VALUE;
+        var offset = base;
+        for (int i = 0; i < BUCKET_SIZE; i++, offset += ENTRY_BYTES) {
+            var data = (long) LONGS.getOpaque(buffer, offset + 8);
+            var check = (long) LONGS.getOpaque(buffer, offset);
+            if (data == 0) {
+                victim = offset;
+                break;
+            }
+            if ((check ^ data) == key) {
+                // same position: keep the deeper result of the current search unless the new one is exact
+                if (bound != EXACT && depth < depth(data) && age(data) == age) {
+                    return;
+                }
+                if (move == 0) {
+                    move = move(data);
+                }
+                victim = offset;
+                break;
+            }
+            var value = depth(data) - 4 * ((age - age(data)) & 0xFF);
+            if (value < victimValue) {
+                victimValue = value;
+                victim = offset;
+            }
+        }
+        var data = pack(depth, bound, score, move, age);
+        LONGS.setOpaque(buffer, victim, key ^ data);
+        LONGS.setOpaque(buffer, victim + 8, data);
+    }
+
+    private static long pack(int depth, int bound, int score, int move, int age) {
+        var clampedScore = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, score));
+        var clampedDepth = Math.max(0, Math.min(0xFF, depth));
+        return (move & ((1L << MOVE_BITS) - 1))
+                | ((clampedScore & 0xFFFFL) << SCORE_SHIFT)
+                | ((long) clampedDepth << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) age << AGE_SHIFT);
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        for (var buffer : segments) {
+            for (int offset = 0; offset < buffer.capacity(); offset += 8) {
+                LONGS.setOpaque(buffer, offset, 0L);
+            }
+        }
+    }
+
+    /**
+     * Estimate how full the table is by sampling the first buckets.
+     *
+     * @return permille of sampled entries written in the current search
+     */
+    public int getUsage() {
+        var buffer = segments[0];
+        var numSampled = 0;
+        var numUsed = 0;
+        for (int offset = 0; offset < buffer.capacity() && numSampled < 1000; offset += ENTRY_BYTES, numSampled++) {
+            var data = (long) LONGS.getOpaque(buffer, offset + 8);
+            if (data != 0 && age(data) == generation) {
+                numUsed++;
+            }
+        }
+        return numSampled == 0 ? 0 : numUsed * 1000 / numSampled;
+    }
+
+    /**
+     * @return size of the table in bytes
+     */
+    public long getSizeInBytes() {
+        return (bucketMask + 1) * BUCKET_BYTES;
+    }
+
+    private long bucketOf(long key) {
+        return key & bucketMask;
+    }
+
+    private static int segmentOf(long bucket) {
+        return (int) (bucket >>> SEGMENT_SHIFT);
+    }
+
+    private static int offsetOf(long bucket) {
+        return (int) (bucket & ((1L << SEGMENT_SHIFT) - 1)) * BUCKET_BYTES;
+    }
+}
@@ -0,0 +1,42 @@
+package castle.comp3021.assignment.textversion;
+
+import castle.comp3021.assignment.protocol.Color;
+import castle.comp3021.assignment.protocol.event.GameEvent;
+import castle.comp3021.assignment.protocol.event.GameEventSubscriber;
+
+/**
+ * Prints the moves, scores and the winner of the text version of the game to the console.
+ */
+public class ConsoleEventPrinter extends GameEventSubscriber {
+    @Override
+    protected void onEvent(GameEvent event) {
+        switch (event.getType()) {
+            case MOVE:
+                var move = event.getMove();
+                System.out.println(event.getPlayer().getName() + " moved piece at " + move.getSource() + "to "
+                        + move.getDestination());
+                break;
+            case SCORE_CHANGE:
+                System.out.println("score " + event.getScore());
+                break;
+            case GAME_OVER:
+                if (event.getMove() == null) {
+                    System.out.println("No available moves for the player " + event.getPlayer().getName());
+                }
+                if (event.getReason() != null) {
+                    System.out.println(event.getReason());
+                }
+                var winner = event.getWinner();
+                System.out.println();
+                if (winner == null) {
+                    System.out.println("Draw!");
+                    break;
+                }
+                System.out.println("Congratulations! ");
+                System.out.printf("Winner: %s%s%s\n", winner.getColor(), winner.getName(), Color.DEFAULT);
+                break;
+            default:
+                break;
+        }
+    }
+}
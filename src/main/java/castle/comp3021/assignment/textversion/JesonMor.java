@@ -2,6 +2,7 @@ package castle.comp3021.assignment.textversion;
 
 import castle.comp3021.assignment.piece.Knight;
 import castle.comp3021.assignment.protocol.*;
+import castle.comp3021.assignment.protocol.event.GameEvent;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
@@ -18,12 +19,56 @@ public class JesonMor extends Game {
 
     private ArrayList<MoveRecord> moveRecords = new ArrayList<>();
 
+    /**
+     * Whether {@link JesonMor#movePiece(Move)} adds to {@link JesonMor#moveRecords}. Headless games which never read
+     * the records can turn it off.
+     */
+    private boolean recordMoves = true;
+
+    /**
+     * Cache of the available moves of each piece, created on first use and kept up to date by
+     * {@link JesonMor#movePiece(Move)} and {@link JesonMor#unmakeMove()}; null while it is not used
+     */
+    private MoveCache moveCache;
+
+    private boolean cacheMoves = true;
+
+    /**
+     * Attack counts of every square, created by the first {@link JesonMor#getAttackMap()} and kept up to date by
+     * {@link JesonMor#movePiece(Move)} and {@link JesonMor#unmakeMove()}; null until then, so that games which never
+     * query attacks do not pay for them
+     */
+    private AttackMap attackMap;
+
+    /**
+     * Number of times a position must occur for the game to be drawn
+     */
+    public static final int REPETITION_LIMIT = 3;
+
+    /**
+     * Positions since the last capture, recorded by {@link JesonMor#start()} and {@link JesonMor#playQuietly(int)}
+     * for the draw rules
+     */
+    private PositionHistory positionHistory = new PositionHistory();
+
+    /**
+     * Undo stack of {@link JesonMor#makeMove(Move)}, kept in parallel arrays so that making a move does not allocate.
+     * Each entry holds the move, the captured piece (or null) and its index in the piece list of the bitboard, the
+     * scores of both players packed into a long, and {@link JesonMor#numMoves} packed with the number of move records.
+     */
+    private Move[] undoMoves = new Move[64];
+    private Piece[] undoCaptured = new Piece[64];
+    private int[] undoCapturedIndexes = new int[64];
+    private long[] undoScores = new long[64];
+    private long[] undoCounters = new long[64];
+    private int undoSize = 0;
+
     /**
      * Start the game
      * Players will take turns according to the order in {@link Configuration#getPlayers()} to make a move until
-     * a player wins.
+     * a player wins, or the game ends by a draw rule (see {@link JesonMor#checkDrawRules(boolean)}).
      *
-     * @return the winner
+     * @return the winner, or null if the game is drawn
      */
     @Override
     public Player start() {
@@ -31,30 +76,32 @@ public class JesonMor extends Game {
         Player winner;
         this.numMoves = 0;
         this.board = configuration.getInitialBoard();
+        this.syncBoard();
+        this.clearUndoStack();
+        this.positionHistory.clear();
+        this.positionHistory.add(this.getZobristKey());
         this.currentPlayer = null;
         this.refreshOutput();
+        var availableMoves = new MoveList();
         while (true) {
             var player = this.configuration.getPlayers()[this.numMoves % this.configuration.getPlayers().length];
             this.currentPlayer = player;
+            if (this.hasEventSubscribers()) {
+                this.publish(GameEvent.turnChange(this.numMoves, player));
+            }
             // let player make next move
-            var availableMoves = this.getAvailableMoves(player);
+            this.getAvailableMoves(player, availableMoves);
             // there shouldn't be no available moves, if no available moves, the player with lower score wins
-            if (availableMoves.length <= 0) {
-                System.out.println("No available moves for the player " + player.getName());
-                if (this.configuration.getPlayers()[0].getScore() < this.configuration.getPlayers()[1].getScore()) {
-                    winner = this.configuration.getPlayers()[0];
-                } else if (this.configuration.getPlayers()[0].getScore() > this.configuration.getPlayers()[1].getScore()) {
-                    winner = this.configuration.getPlayers()[1];
-                } else {
-                    winner = player;
-                }
+            Move move = null;
+            if (availableMoves.isEmpty()) {
+                winner = this.getWinnerWithoutMoves(player);
             } else {
-                var move = player.nextMove(this, availableMoves);
+                move = this.toMove(player.nextMove(this, availableMoves));
                 var movedPiece = this.getPiece(move.getSource());
+                var capture = this.getPiece(move.getDestination()) != null;
                 // make move
                 this.movePiece(move);
                 this.numMoves++;
-                System.out.println(player.getName() + " moved piece at " + move.getSource() + "to " + move.getDestination());
                 this.updateScore(player, movedPiece, move);
 
                 this.refreshOutput();
@@ -62,16 +109,137 @@ public class JesonMor extends Game {
                 // check if there is a winner and if there is, return the winner.
                 // if there is no winner yet, continue the loop with label "round"
                 winner = this.getWinner(player, movedPiece, move);
+                if (winner == null) {
+                    var reason = this.checkDrawRules(capture);
+                    if (reason != null) {
+                        return this.endByDrawRule(player, move, reason);
+                    }
+                }
             }
             if (winner != null) {
-                System.out.println();
-                System.out.println("Congratulations! ");
-                System.out.printf("Winner: %s%s%s\n", player.getColor(), player.getName(), Color.DEFAULT);
+                if (this.hasEventSubscribers()) {
+                    this.publish(GameEvent.gameOver(this.numMoves, player, move, winner));
+                }
                 return winner;
             }
         }
     }
 
+    /**
+     * Play the game from the initial position like {@link JesonMor#start()}, but without any console output, e.g. for
+     * self-play of computer players.
+     *
+     * @param maxMoves maximum number of moves, after which the game is abandoned
+     * @return the winner, or null if the game is drawn or abandoned
+     */
+    public Player playQuietly(int maxMoves) {
+        this.numMoves = 0;
+        this.board = configuration.getInitialBoard();
+        this.syncBoard();
+        this.clearUndoStack();
+        this.positionHistory.clear();
+        this.positionHistory.add(this.getZobristKey());
+        var availableMoves = new MoveList();
+        while (this.numMoves < maxMoves) {
+            var player = this.getCurrentPlayer();
+            this.currentPlayer = player;
+            if (this.hasEventSubscribers()) {
+                this.publish(GameEvent.turnChange(this.numMoves, player));
+            }
+            this.getAvailableMoves(player, availableMoves);
+            Move move = null;
+            Player winner;
+            if (availableMoves.isEmpty()) {
+                winner = this.getWinnerWithoutMoves(player);
+            } else {
+                move = this.toMove(player.nextMove(this, availableMoves));
+                var movedPiece = this.getPiece(move.getSource());
+                var capture = this.getPiece(move.getDestination()) != null;
+                this.makeMove(move);
+                winner = this.getWinner(player, movedPiece, move);
+                if (winner == null) {
+                    var reason = this.checkDrawRules(capture);
+                    if (reason != null) {
+                        return this.endByDrawRule(player, move, reason);
+                    }
+                }
+            }
+            if (winner != null) {
+                if (this.hasEventSubscribers()) {
+                    this.publish(GameEvent.gameOver(this.numMoves, player, move, winner));
+                }
+                return winner;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the winner when a player has no available moves: the player with lower score wins, or the player without
+     * moves if the scores are equal.
+     *
+     * @param player the player without available moves
+     * @return the winner
+     */
+    private Player getWinnerWithoutMoves(Player player) {
+        var winner = this.getWinnerByScore();
+        return winner == null ? player : winner;
+    }
+
+    /**
+     * @return the player with lower score, or null if the scores are equal
+     */
+    private Player getWinnerByScore() {
+        var players = this.configuration.getPlayers();
+        if (players[0].getScore() < players[1].getScore()) {
+            return players[0];
+        } else if (players[0].getScore() > players[1].getScore()) {
+            return players[1];
+        }
+        return null;
+    }
+
+    /**
+     * Record the position after a move which did not win the game, and check the draw rules: the game is drawn when a
+     * position occurs for the {@link JesonMor#REPETITION_LIMIT}th time, and it is adjudicated on scores when no piece
+     * has been captured for {@link Configuration#getNoCaptureLimit()} moves since captures are allowed.
+     * This takes constant time.
+     *
+     * @param capture whether the move captured a piece
+     * @return why the game ends, or null if it goes on
+     */
+    private String checkDrawRules(boolean capture) {
+        // positions before a capture, or before captures are allowed, cannot occur again
+        if (capture || this.numMoves == this.configuration.getNumMovesProtection()) {
+            this.positionHistory.clear();
+        }
+        if (this.positionHistory.add(this.getZobristKey()) >= REPETITION_LIMIT) {
+            return "The same position occurred " + REPETITION_LIMIT + " times";
+        }
+        var limit = this.configuration.getNoCaptureLimit();
+        // the history holds the position after the last capture and one position per move since
+        if (limit > 0 && this.numMoves > this.configuration.getNumMovesProtection()
+                && this.positionHistory.getLength() > limit) {
+            return "No piece was captured in the last " + limit + " moves";
+        }
+        return null;
+    }
+
+    /**
+     * End the game by a draw rule. A repeated position is a draw; otherwise the player with lower score wins, like when
+     * a player has no available moves, or it is a draw if the scores are equal.
+     *
+     * @return the winner, or null for a draw
+     */
+    private Player endByDrawRule(Player lastPlayer, Move lastMove, String reason) {
+        var winner = this.positionHistory.count(this.getZobristKey()) >= REPETITION_LIMIT
+                ? null : this.getWinnerByScore();
+        if (this.hasEventSubscribers()) {
+            this.publish(GameEvent.gameOver(this.numMoves, lastPlayer, lastMove, winner, reason));
+        }
+        return winner;
+    }
+
     /**
      * Get the winner of the game. If there is no winner yet, return null;
      *
@@ -95,31 +263,92 @@ public class JesonMor extends Game {
             winner = lastPlayer;
         } else {
             // second way to win: one player captures all the pieces of other players
+            // the piece counts are kept by the bitboard, so this does not scan the board
             Player remainingPlayer = null;
-            for (int i = 0; i < this.configuration.getSize(); i++) {
-                for (int j = 0; j < this.configuration.getSize(); j++) {
-                    var piece = this.getPiece(i, j);
-                    if (piece == null) {
-                        continue;
-                    }
-                    if (remainingPlayer == null) {
-                        remainingPlayer = piece.getPlayer();
-                    } else if (remainingPlayer != piece.getPlayer()) {
-                        // there are still two players having pieces on board
-                        return null;
-                    }
+            var players = this.configuration.getPlayers();
+            for (int i = 0; i < players.length; i++) {
+                if (this.bitBoard.count(i) == 0) {
+                    continue;
                 }
+                if (remainingPlayer != null) {
+                    // there are still two players having pieces on board
+                    return null;
+                }
+                remainingPlayer = players[i];
             }
-            // if the previous for loop terminates, then there must be 1 player on board (it cannot be null).
-            // then winner appears
             winner = remainingPlayer;
         }
 
         return winner;
     }
 
+    public void setRecordMoves(boolean recordMoves) {
+        this.recordMoves = recordMoves;
+    }
+
+    /**
+     * @param cacheMoves whether {@link JesonMor#getAvailableMoves(Player, MoveList)} reuses the moves of pieces which
+     *                   are not affected by the last moves
+     */
+    public void setCacheMoves(boolean cacheMoves) {
+        this.cacheMoves = cacheMoves;
+        if (!cacheMoves) {
+            this.moveCache = null;
+        }
+    }
+
+    /**
+     * Turn on or off the consistency check of the move cache, which compares the cached moves against generating
+     * them from scratch on every query. This is slow and meant for debugging.
+     *
+     * @param checkMoveCache whether to check the move cache
+     */
+    public void setCheckMoveCache(boolean checkMoveCache) {
+        this.getMoveCache().setCheckConsistency(checkMoveCache);
+    }
+
+    private MoveCache getMoveCache() {
+        if (this.moveCache == null) {
+            this.moveCache = new MoveCache(this.configuration.getSize());
+        }
+        return this.moveCache;
+    }
+
+    /**
+     * Get the number of pieces of each player attacking each square. The map is built on first use, and then updated
+     * by every move.
+     *
+     * @return the attack map of the current position
+     */
+    public AttackMap getAttackMap() {
+        if (this.attackMap == null) {
+            this.attackMap = AttackMap.of(this.bitBoard);
+        }
+        return this.attackMap;
+    }
+
+    @Override
+    public void syncBoard() {
+        super.syncBoard();
+        // called by the constructor of Game before the fields of this class are initialized
+        if (this.moveCache != null) {
+            this.moveCache.reset();
+        }
+        if (this.attackMap != null) {
+            this.attackMap = AttackMap.of(this.bitBoard);
+        }
+    }
+
     public void resetMoveRecords(){
         moveRecords.clear();
+        // undo entries refer to positions of the records
+        clearUndoStack();
+    }
+
+    private void clearUndoStack() {
+        Arrays.fill(undoMoves, 0, undoSize, null);
+        Arrays.fill(undoCaptured, 0, undoSize, null);
+        undoSize = 0;
     }
 
     /**
@@ -130,13 +359,119 @@ public class JesonMor extends Game {
      * @param move   the move that is just made
      */
     public void updateScore(Player player, Piece piece, Move move) {
-        var newScore = player.getScore();
-        newScore += Math.abs(move.getSource().x() - move.getDestination().x());
-        newScore += Math.abs(move.getSource().y() - move.getDestination().y());
+        var newScore = player.getScore() + getMoveScore(move);
         player.setScore(newScore);
-        System.out.println("score " + newScore);
+        if (this.hasEventSubscribers()) {
+            this.publish(GameEvent.scoreChange(this.numMoves, player, newScore));
+        }
+    }
+
+
+    /**
+     * Get the score gained by making a move, which is the distance between its source and destination.
+     *
+     * @param move the move
+     * @return the score
+     */
+    public static int getMoveScore(Move move) {
+        return Math.abs(move.getSource().x() - move.getDestination().x())
+                + Math.abs(move.getSource().y() - move.getDestination().y());
+    }
+
+    /**
+     * Make a move of the current player in place, so that it can be reverted by {@link JesonMor#unmakeMove()}.
+     * This moves the piece, increases the number of moves and updates the score of the player, like one round of
+     * {@link JesonMor#start()} but without any output.
+     *
+     * @param move the move to make
+     */
+    public void makeMove(@NotNull Move move) {
+        if (undoSize == undoMoves.length) {
+            undoMoves = Arrays.copyOf(undoMoves, undoSize * 2);
+            undoCaptured = Arrays.copyOf(undoCaptured, undoSize * 2);
+            undoCapturedIndexes = Arrays.copyOf(undoCapturedIndexes, undoSize * 2);
+            undoScores = Arrays.copyOf(undoScores, undoSize * 2);
+            undoCounters = Arrays.copyOf(undoCounters, undoSize * 2);
+        }
+        var players = this.configuration.getPlayers();
+        var player = this.getCurrentPlayer();
+        undoMoves[undoSize] = move;
+        undoCaptured[undoSize] = this.getPiece(move.getDestination());
+        undoCapturedIndexes[undoSize] = this.bitBoard.pieceIndexAt(this.bitBoard.square(move.getDestination()));
+        undoScores[undoSize] = ((long) players[0].getScore() << 32) | (players[1].getScore() & 0xFFFFFFFFL);
+        undoCounters[undoSize] = ((long) this.numMoves << 32) | this.moveRecords.size();
+        undoSize++;
+
+        this.movePiece(move);
+        this.numMoves++;
+        player.setScore(player.getScore() + getMoveScore(move));
+        if (this.hasEventSubscribers()) {
+            this.publish(GameEvent.scoreChange(this.numMoves, player, player.getScore()));
+        }
+    }
+
+    /**
+     * Make a packed move of the current player in place.
+     *
+     * @param move the packed move
+     * @see JesonMor#makeMove(Move)
+     */
+    public void makeMove(int move) {
+        this.makeMove(this.toMove(move));
+    }
+
+    /**
+     * Revert the last move made by {@link JesonMor#makeMove(Move)}, restoring the captured piece, the scores of both
+     * players, the number of moves and the move records.
+     */
+    public void unmakeMove() {
+        if (undoSize == 0) {
+            throw new IllegalStateException("there is no move to unmake");
+        }
+        undoSize--;
+        var move = undoMoves[undoSize];
+        var captured = undoCaptured[undoSize];
+        undoMoves[undoSize] = null;
+        undoCaptured[undoSize] = null;
+
+        var source = move.getSource();
+        var destination = move.getDestination();
+        this.board[source.x()][source.y()] = this.board[destination.x()][destination.y()];
+        this.board[destination.x()][destination.y()] = captured;
+        var destinationSquare = this.bitBoard.square(destination);
+        var sourceSquare = this.bitBoard.square(source);
+        if (this.attackMap != null) {
+            this.attackMap.remove(this.bitBoard, sourceSquare, destinationSquare);
+        }
+        this.bitBoard.move(destinationSquare, sourceSquare);
+        if (captured != null) {
+            this.bitBoard.put(destinationSquare, this.getPlayerIndex(captured.getPlayer()), BitBoard.typeOf(captured),
+                    undoCapturedIndexes[undoSize]);
+        }
+        if (this.attackMap != null) {
+            this.attackMap.add(this.bitBoard, sourceSquare, destinationSquare);
+        }
+        if (this.moveCache != null) {
+            this.moveCache.invalidate(this.bitBoard, destinationSquare);
+            this.moveCache.invalidate(this.bitBoard, sourceSquare);
+        }
+
+        var players = this.configuration.getPlayers();
+        players[0].setScore((int) (undoScores[undoSize] >> 32));
+        players[1].setScore((int) undoScores[undoSize]);
+        this.numMoves = (int) (undoCounters[undoSize] >> 32);
+        var numRecords = (int) undoCounters[undoSize];
+        while (this.moveRecords.size() > numRecords) {
+            this.moveRecords.remove(this.moveRecords.size() - 1);
+        }
     }
 
+    /**
+     * @return the number of moves that can be reverted by {@link JesonMor#unmakeMove()}
+     */
+    public int getUndoDepth() {
+        return undoSize;
+    }
 
     /**
      * Make a move.
@@ -154,8 +489,30 @@ public class JesonMor extends Game {
         // move the piece
         this.board[move.getDestination().x()][move.getDestination().y()] = sourcePiece;
         this.board[move.getSource().x()][move.getSource().y()] = null;
+        var sourceSquare = this.bitBoard.square(move.getSource());
+        var destinationSquare = this.bitBoard.square(move.getDestination());
+        if (this.attackMap != null) {
+            this.attackMap.remove(this.bitBoard, sourceSquare, destinationSquare);
+        }
+        this.bitBoard.move(sourceSquare, destinationSquare);
+        if (this.attackMap != null) {
+            this.attackMap.add(this.bitBoard, sourceSquare, destinationSquare);
+        }
+        if (this.moveCache != null) {
+            this.moveCache.invalidate(this.bitBoard, sourceSquare);
+            this.moveCache.invalidate(this.bitBoard, destinationSquare);
+        }
 
-        moveRecords.add(new MoveRecord(getCurrentPlayer(), move));
+        if (recordMoves) {
+            moveRecords.add(new MoveRecord(getCurrentPlayer(), move));
+        }
+        if (this.hasEventSubscribers()) {
+            // the move is not counted in numMoves yet
+            this.publish(GameEvent.move(this.numMoves + 1, getCurrentPlayer(), sourcePiece, move));
+            if (destPiece != null) {
+                this.publish(GameEvent.capture(this.numMoves + 1, getCurrentPlayer(), sourcePiece, move, destPiece));
+            }
+        }
     }
 
     /**
@@ -165,25 +522,51 @@ public class JesonMor extends Game {
      * @return an array of available moves
      */
     public @NotNull Move[] getAvailableMoves(Player player) {
-        var moves = new ArrayList<Move>();
-        // find all pieces belonging to the player
-        for (int i = 0; i < this.configuration.getSize(); i++) {
-            for (int j = 0; j < this.configuration.getSize(); j++) {
-                var piece = this.getPiece(i, j);
-                if (piece == null) {
-                    continue;
-                }
-                if (!piece.getPlayer().equals(player)) {
-                    continue;
-                }
-                var candidateMoves = piece.getAvailableMoves(this, new Place(i, j));
-                moves.addAll(Arrays.asList(candidateMoves));
-            }
+        var moves = new MoveList();
+        this.getAvailableMoves(player, moves);
+        return this.toMoves(moves);
+    }
+
+    /**
+     * Get all available moves of one player in packed form.
+     *
+     * @param player the player whose available moves to get
+     * @param moves  the list to fill
+     */
+    public void getAvailableMoves(Player player, @NotNull MoveList moves) {
+        moves.clear();
+        var index = this.getPlayerIndex(player);
+        if (index < 0) {
+            return;
+        }
+        if (this.cacheMoves) {
+            this.getMoveCache().getAvailableMoves(this, index, moves);
+            return;
+        }
+        // iterate over the pieces belonging to the player only
+        var pieces = this.bitBoard.getPieces(index);
+        for (int i = 0; i < this.bitBoard.count(index); i++) {
+            var square = pieces[i];
+            this.board[this.bitBoard.x(square)][this.bitBoard.y(square)].getAvailableMoves(this, square, moves);
         }
-        return moves.toArray(new Move[0]);
     }
 
 
+    @Override
+    public JesonMor clone() throws CloneNotSupportedException {
+        var cloned = (JesonMor) super.clone();
+        cloned.moveRecords = new ArrayList<>(this.moveRecords);
+        cloned.undoMoves = this.undoMoves.clone();
+        cloned.undoCaptured = this.undoCaptured.clone();
+        cloned.undoCapturedIndexes = this.undoCapturedIndexes.clone();
+        cloned.undoScores = this.undoScores.clone();
+        cloned.undoCounters = this.undoCounters.clone();
+        cloned.moveCache = this.moveCache == null ? null : this.moveCache.clone();
+        cloned.positionHistory = this.positionHistory.clone();
+        cloned.attackMap = this.attackMap == null ? null : this.attackMap.clone();
+        return cloned;
+    }
+
     /**
      * Convert necessary records of Jeson Mor to string
      *
@@ -7,6 +7,7 @@ import castle.comp3021.assignment.player.RandomPlayer;
 import castle.comp3021.assignment.protocol.Configuration;
 import castle.comp3021.assignment.protocol.Game;
 import castle.comp3021.assignment.protocol.Player;
+import castle.comp3021.assignment.protocol.event.GameEventBus;
 
 public class Main {
     protected static Player whitePlayer;
@@ -49,11 +50,28 @@ public class Main {
         return new JesonMor(configuration);
     }
 
+    /**
+     * Start a game with its moves, scores and winner printed to the console.
+     * The console printer runs on the game thread, so that its output stays in order with the board and the prompts
+     * of console players.
+     *
+     * @param game the game
+     */
+    private static void play(Game game) {
+        var printer = new ConsoleEventPrinter();
+        try (var eventBus = new GameEventBus(Runnable::run, GameEventBus.DEFAULT_BUFFER_CAPACITY, false)) {
+            eventBus.subscribe(printer);
+            game.setEventBus(eventBus);
+            game.start();
+        }
+        printer.awaitCompletion(1000);
+    }
+
     public static void main(String[] args) {
         var helper = "two integer arguments are required specifying size of gameboard and number of moves with capturing protection ";
 
         if (args.length == 0){
-            createGame(size, numMovesProtection).start();
+            play(createGame(size, numMovesProtection));
         }
 
         if (args.length != 2) {
@@ -70,6 +88,6 @@ public class Main {
         } catch (NumberFormatException e) {
             throw new IllegalArgumentException("the second argument is not a number");
         }
-        createGame(size, numMovesProtection).start();
+        play(createGame(size, numMovesProtection));
     }
 }
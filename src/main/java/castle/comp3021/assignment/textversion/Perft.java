@@ -0,0 +1,229 @@
+package castle.comp3021.assignment.textversion;
+
+import castle.comp3021.assignment.player.RandomPlayer;
+import castle.comp3021.assignment.protocol.Configuration;
+import castle.comp3021.assignment.protocol.MoveList;
+import castle.comp3021.assignment.protocol.Player;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Perft: count the leaf nodes of the game tree to a fixed depth, to verify and time move generation.
+ * <p>
+ * A move ending the game is a leaf at depth 1 but is not expanded further, so it adds no leaves at greater depths.
+ * Root moves can be searched in parallel on a copy of the game each, and subtree counts can be cached in a hash table
+ * shared by all threads.
+ * <p>
+ * Usage: {@code Perft size depth [-protection N] [-divide] [-parallel] [-hash MB]}. The position is the
+ * default layout of {@link Configuration#setAllInitialPieces()}.
+ */
+public class Perft {
+    private static final int MAX_DEPTH = 64;
+
+    private final JesonMor game;
+
+    /**
+     * Cache of subtree counts, or null
+     */
+    private final PerftTable table;
+
+    private final MoveList[] moveLists = new MoveList[MAX_DEPTH + 1];
+
+    /**
+     * @param game  the game, which is searched in place and restored afterwards
+     * @param table cache of subtree counts, may be null
+     */
+    public Perft(JesonMor game, PerftTable table) {
+        this.game = game;
+        this.table = table;
+        for (int i = 0; i < moveLists.length; i++) {
+            moveLists[i] = new MoveList();
+        }
+    }
+
+    /**
+     * Count the leaf nodes to a depth.
+     *
+     * @param depth the depth, at most 64
+     * @return number of leaf nodes
+     */
+    public long perft(int depth) {
+        if (depth < 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("depth must be between 0 and " + MAX_DEPTH);
+        }
+        return count(depth);
+    }
+
+    private long count(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        var moves = moveLists[depth];
+        game.getAvailableMoves(game.getCurrentPlayer(), moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+        var key = 0L;
+        if (table != null) {
+            key = this.hashKey(depth);
+            var cached = table.probe(key);
+            if (cached >= 0) {
+                return cached;
+            }
+        }
+        var nodes = 0L;
+        for (int i = 0; i < moves.size(); i++) {
+            if (this.makeMove(moves.get(i))) {
+                nodes += count(depth - 1);
+            }
+            game.unmakeMove();
+        }
+        if (table != null) {
+            table.store(key, nodes);
+        }
+        return nodes;
+    }
+
+    /**
+     * Make a move.
+     *
+     * @return whether the game goes on after the move
+     */
+    private boolean makeMove(int packed) {
+        var player = game.getCurrentPlayer();
+        var move = game.toMove(packed);
+        var piece = game.getPiece(move.getSource());
+        game.makeMove(move);
+        return game.getWinner(player, piece, move) == null;
+    }
+
+    /**
+     * The count depends on the position, the depth and, while captures are not yet allowed or the game cannot yet
+     * be won, on the number of moves made.
+     */
+    private long hashKey(int depth) {
+        var protection = game.getConfiguration().getNumMovesProtection();
+        var phase = Math.min(game.getNumMoves(), protection + 1);
+        return game.getZobristKey() ^ (depth * 0x9E3779B97F4A7C15L) ^ (phase * 0xC2B2AE3D27D4EB4FL);
+    }
+
+    /**
+     * Count the leaf nodes below each root move.
+     *
+     * @param game      the game
+     * @param rootMoves filled with the available moves of the root in packed form
+     * @param depth     the depth, at least 1
+     * @param table     cache of subtree counts, may be null
+     * @param parallel  whether to search the root moves in parallel
+     * @return the number of leaf nodes below each root move
+     */
+    public static long[] divide(JesonMor game, MoveList rootMoves, int depth, PerftTable table, boolean parallel) {
+        game.getAvailableMoves(game.getCurrentPlayer(), rootMoves);
+        var counts = new long[rootMoves.size()];
+        if (!parallel) {
+            var perft = new Perft(game, table);
+            for (int i = 0; i < rootMoves.size(); i++) {
+                counts[i] = perft.makeMove(rootMoves.get(i)) ? perft.count(depth - 1) : (depth == 1 ? 1 : 0);
+                game.unmakeMove();
+            }
+            return counts;
+        }
+        var pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            var tasks = new ForkJoinTask<?>[rootMoves.size()];
+            for (int i = 0; i < rootMoves.size(); i++) {
+                var index = i;
+                var move = rootMoves.get(i);
+                tasks[i] = pool.submit(() -> {
+                    var perft = new Perft(copyOf(game), table);
+                    counts[index] = perft.makeMove(move) ? perft.count(depth - 1) : (depth == 1 ? 1 : 0);
+                });
+            }
+            for (var task : tasks) {
+                task.join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return counts;
+    }
+
+    private static JesonMor copyOf(JesonMor game) {
+        try {
+            var copy = game.clone();
+            copy.setRecordMoves(false);
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String format(JesonMor game, int packed) {
+        var move = game.toMove(packed);
+        return String.valueOf((char) ('a' + move.getSource().x())) + (move.getSource().y() + 1) + "->"
+                + (char) ('a' + move.getDestination().x()) + (move.getDestination().y() + 1);
+    }
+
+    public static void main(String[] args) {
+        var helper = "usage: Perft size depth [-protection N] [-divide] [-parallel] [-hash MB]";
+        if (args.length < 2) {
+            throw new IllegalArgumentException(helper);
+        }
+        int size;
+        int depth;
+        var numMovesProtection = 1;
+        var divide = false;
+        var parallel = false;
+        var hashSize = 0;
+        try {
+            size = Integer.parseInt(args[0]);
+            depth = Integer.parseInt(args[1]);
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-divide":
+                        divide = true;
+                        break;
+                    case "-parallel":
+                        parallel = true;
+                        break;
+                    case "-hash":
+                        hashSize = Integer.parseInt(args[++i]);
+                        break;
+                    case "-protection":
+                        numMovesProtection = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException(helper);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException(helper);
+        }
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("depth must be between 1 and " + MAX_DEPTH);
+        }
+
+        var configuration = new Configuration(size,
+                new Player[]{new RandomPlayer("White"), new RandomPlayer("Black")}, numMovesProtection);
+        configuration.setAllInitialPieces();
+        var game = new JesonMor(configuration);
+        game.setRecordMoves(false);
+        var table = hashSize > 0 ? new PerftTable(hashSize) : null;
+
+        var startTime = System.nanoTime();
+        var rootMoves = new MoveList();
+        var counts = divide(game, rootMoves, depth, table, parallel);
+        var elapsed = (System.nanoTime() - startTime) / 1_000_000;
+
+        var nodes = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            if (divide) {
+                System.out.println(format(game, rootMoves.get(i)) + ": " + counts[i]);
+            }
+            nodes += counts[i];
+        }
+        System.out.printf("perft(%d) = %d, time %dms, nps %d%n", depth, nodes, elapsed,
+                nodes * 1000 / Math.max(1, elapsed));
+    }
+}
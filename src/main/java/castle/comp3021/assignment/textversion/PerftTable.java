@@ -0,0 +1,49 @@
+package castle.comp3021.assignment.textversion;
+
+/**
+ * Cache of perft subtree counts, shared by perft threads without locks.
+ * <p>
+ * Each entry keeps the count and the hash XOR-ed with the count. A probe accepts an entry only if XOR-ing both gives
+ * back the hash, so an entry torn by two threads writing at the same time is seen as a miss.
+ */
+public class PerftTable {
+    /**
+     * Hashes and counts in alternate slots
+     */
+    private final long[] entries;
+
+    private final int mask;
+
+    /**
+     * @param sizeMB size of the table in megabytes, rounded down to a power of 2
+     */
+    public PerftTable(int sizeMB) {
+        if (sizeMB <= 0 || sizeMB > 8192) {
+            throw new IllegalArgumentException("size of perft table must be between 1 and 8192 MB");
+        }
+        var numEntries = (int) Long.highestOneBit(((long) sizeMB << 20) / 16);
+        this.entries = new long[numEntries * 2];
+        this.mask = numEntries - 1;
+    }
+
+    /**
+     * @param key hash of the position and depth
+     * @return the cached count, or -1 if not found
+     */
+    public long probe(long key) {
+        var index = ((int) key & mask) * 2;
+        var check = entries[index];
+        var count = entries[index + 1];
+        return (check ^ count) == key && count != 0 ? count : -1;
+    }
+
+    /**
+     * @param key   hash of the position and depth
+     * @param count number of leaf nodes
+     */
+    public void store(long key, long count) {
+        var index = ((int) key & mask) * 2;
+        entries[index] = key ^ count;
+        entries[index + 1] = count;
+    }
+}
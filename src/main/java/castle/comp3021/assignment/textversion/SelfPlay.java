@@ -0,0 +1,382 @@
+package castle.comp3021.assignment.textversion;
+
+import castle.comp3021.assignment.player.AlphaBetaPlayer;
+import castle.comp3021.assignment.player.MonteCarloPlayer;
+import castle.comp3021.assignment.player.RandomPlayer;
+import castle.comp3021.assignment.player.SearchingPlayer;
+import castle.comp3021.assignment.player.SmartRandomPlayer;
+import castle.comp3021.assignment.protocol.Configuration;
+import castle.comp3021.assignment.protocol.Player;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+/**
+ * Headless self-play: play many games between two kinds of computer players on all cores, without console output,
+ * and summarize the results.
+ * <p>
+ * The two players swap sides after every game, so that each kind moves first in half of the games. Each thread
+ * creates its two players once by the given factories and reuses them for its later games with their scores reset,
+ * so that searching players keep their transposition tables and search threads; {@link SelfPlay#shutdown()} shuts
+ * the search threads down.
+ * <p>
+ * Usage: {@code SelfPlay playerA playerB [-games N] [-size N] [-protection N] [-threads N] [-max-moves N]
+ * [-no-capture-limit N] [-hash MB] [-out file]}, where a player is {@code random}, {@code smart},
+ * {@code alphabeta[:millis[:threads]]} or {@code mcts[:millis[:threads]]}, searching on one thread by default.
+ * Games are only adjudicated after moves without capture with {@code -no-capture-limit}; otherwise a game which goes on
+ * for {@code -max-moves} moves is abandoned. With {@code -out}, one line per game is written as
+ * {@code game,first,second,winner,moves,millis}.
+ */
+public class SelfPlay {
+    /**
+     * Result of one game
+     */
+    public static final class GameResult {
+        /**
+         * Index of the game
+         */
+        private final int game;
+
+        /**
+         * Whether player A moved first
+         */
+        private final boolean aFirst;
+
+        /**
+         * 0 if player A won, 1 if player B won, -1 if the game was drawn, -2 if it was abandoned
+         */
+        private final int winner;
+
+        private final int numMoves;
+
+        private final long elapsedMillis;
+
+        public GameResult(int game, boolean aFirst, int winner, int numMoves, long elapsedMillis) {
+            this.game = game;
+            this.aFirst = aFirst;
+            this.winner = winner;
+            this.numMoves = numMoves;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /* Getters start */
+        public int getGame() {
+            return game;
+        }
+
+        public boolean isAFirst() {
+            return aFirst;
+        }
+
+        public int getWinner() {
+            return winner;
+        }
+
+        public int getNumMoves() {
+            return numMoves;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+        /* Getters end */
+
+        /**
+         * @return the compact form {@code game,first,second,winner,moves,millis} with players named A and B
+         */
+        public String toCsv() {
+            return String.format("%d,%s,%s,%s,%d,%d", game, aFirst ? "A" : "B", aFirst ? "B" : "A",
+                    winner == 0 ? "A" : winner == 1 ? "B" : winner == -1 ? "draw" : "-", numMoves, elapsedMillis);
+        }
+    }
+
+    private final Function<String, Player> playerA;
+    private final Function<String, Player> playerB;
+    private final int size;
+    private final int numMovesProtection;
+    private final int maxMoves;
+    private int noCaptureLimit = Configuration.DEFAULTNOCAPTURELIMIT;
+    private int hashSize = Configuration.DEFAULTHASHSIZE;
+
+    /**
+     * Players A and B of the games played by each thread
+     */
+    private final ThreadLocal<Player[]> players = new ThreadLocal<>();
+
+    /**
+     * All players created so far, to shut down
+     */
+    private final Queue<Player> createdPlayers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param playerA            creates player A given its name
+     * @param playerB            creates player B given its name
+     * @param size               size of gameboard
+     * @param numMovesProtection number of moves with capture protection
+     * @param maxMoves           maximum number of moves of a game, after which it is abandoned
+     */
+    public SelfPlay(Function<String, Player> playerA, Function<String, Player> playerB, int size,
+                    int numMovesProtection, int maxMoves) {
+        this.playerA = playerA;
+        this.playerB = playerB;
+        this.size = size;
+        this.numMovesProtection = numMovesProtection;
+        this.maxMoves = maxMoves;
+    }
+
+    /**
+     * @param noCaptureLimit number of moves without capture after which a game is adjudicated, or 0 for no limit
+     */
+    public void setNoCaptureLimit(int noCaptureLimit) {
+        this.noCaptureLimit = noCaptureLimit;
+    }
+
+    /**
+     * @param hashSize size of the transposition table of each searching player in megabytes
+     */
+    public void setHashSize(int hashSize) {
+        this.hashSize = hashSize;
+    }
+
+    /**
+     * Get the players of the current thread, creating them on first use.
+     *
+     * @return players A and B, with their scores reset
+     */
+    private Player[] getPlayers() {
+        var current = players.get();
+        if (current == null) {
+            current = new Player[]{playerA.apply("A"), playerB.apply("B")};
+            players.set(current);
+            createdPlayers.add(current[0]);
+            createdPlayers.add(current[1]);
+        }
+        for (var player : current) {
+            player.setScore(0);
+        }
+        return current;
+    }
+
+    /**
+     * Shut down the search threads of all players created so far. They are created again if more games are played.
+     */
+    public void shutdown() {
+        for (var player : createdPlayers) {
+            if (player instanceof SearchingPlayer) {
+                ((SearchingPlayer) player).shutdown();
+            }
+        }
+    }
+
+    /**
+     * Play one game.
+     *
+     * @param index index of the game; player A moves first in even games
+     * @return the result
+     */
+    public GameResult playGame(int index) {
+        var aFirst = index % 2 == 0;
+        var current = this.getPlayers();
+        var a = current[0];
+        var b = current[1];
+        var configuration = new Configuration(size, aFirst ? new Player[]{a, b} : new Player[]{b, a},
+                numMovesProtection);
+        configuration.setAllInitialPieces();
+        configuration.setNoCaptureLimit(noCaptureLimit);
+        configuration.setHashSize(hashSize);
+        var game = new JesonMor(configuration);
+        game.setRecordMoves(false);
+        var startTime = System.nanoTime();
+        var winner = game.playQuietly(maxMoves);
+        var elapsed = (System.nanoTime() - startTime) / 1_000_000;
+        int result;
+        if (winner != null) {
+            result = winner == a ? 0 : 1;
+        } else {
+            result = game.getNumMoves() < maxMoves ? -1 : -2;
+        }
+        return new GameResult(index, aFirst, result, game.getNumMoves(), elapsed);
+    }
+
+    /**
+     * Play games in parallel.
+     *
+     * @param numGames   number of games
+     * @param numThreads number of games played at the same time
+     * @return the results, in the order of the games
+     */
+    public GameResult[] playGames(int numGames, int numThreads) {
+        var results = new GameResult[numGames];
+        var pool = new ForkJoinPool(numThreads);
+        try {
+            var tasks = new ForkJoinTask<?>[numGames];
+            for (int i = 0; i < numGames; i++) {
+                var index = i;
+                tasks[i] = pool.submit(() -> {
+                    results[index] = this.playGame(index);
+                });
+            }
+            for (var task : tasks) {
+                task.join();
+            }
+        } finally {
+            pool.shutdown();
+            this.shutdown();
+        }
+        return results;
+    }
+
+    /**
+     * Summarize results.
+     *
+     * @param results       results of the games
+     * @param elapsedMillis wall time of all games
+     * @return a multi-line summary with win rates, average length and games per second
+     */
+    public static String summarize(GameResult[] results, long elapsedMillis) {
+        var winsA = 0;
+        var winsB = 0;
+        var winsFirst = 0;
+        var draws = 0;
+        var abandoned = 0;
+        var totalMoves = 0L;
+        for (var result : results) {
+            totalMoves += result.getNumMoves();
+            if (result.getWinner() < 0) {
+                if (result.getWinner() == -1) {
+                    draws++;
+                } else {
+                    abandoned++;
+                }
+                continue;
+            }
+            if (result.getWinner() == 0) {
+                winsA++;
+            } else {
+                winsB++;
+            }
+            if ((result.getWinner() == 0) == result.isAFirst()) {
+                winsFirst++;
+            }
+        }
+        var numGames = Math.max(1, results.length);
+        return String.format("games %d, A wins %d (%.1f%%), B wins %d (%.1f%%), draws %d, abandoned %d%n"
+                        + "first player wins %.1f%%, average length %.1f moves%n"
+                        + "time %dms, %.2f games/s, %.0f moves/s",
+                results.length, winsA, 100.0 * winsA / numGames, winsB, 100.0 * winsB / numGames, draws, abandoned,
+                100.0 * winsFirst / Math.max(1, results.length - draws - abandoned), (double) totalMoves / numGames,
+                elapsedMillis, results.length * 1000.0 / Math.max(1, elapsedMillis),
+                totalMoves * 1000.0 / Math.max(1, elapsedMillis));
+    }
+
+    /**
+     * Create a player factory from its description. Searching players use one search thread unless told otherwise,
+     * as games are already played in parallel.
+     *
+     * @param description {@code random}, {@code smart}, {@code alphabeta[:millis[:threads]]} or
+     *                    {@code mcts[:millis[:threads]]}
+     * @return factory of players given their name
+     */
+    public static Function<String, Player> parsePlayer(String description) {
+        var parts = description.split(":", 3);
+        var millis = parts.length > 1 ? Long.parseLong(parts[1]) : 100;
+        var numSearchThreads = parts.length > 2 ? Integer.parseInt(parts[2]) : 1;
+        switch (parts[0]) {
+            case "random":
+                return RandomPlayer::new;
+            case "smart":
+                return SmartRandomPlayer::new;
+            case "alphabeta":
+                return name -> {
+                    var player = new AlphaBetaPlayer(name);
+                    player.setTimeLimit(millis);
+                    player.setNumThreads(numSearchThreads);
+                    return player;
+                };
+            case "mcts":
+                return name -> {
+                    var player = new MonteCarloPlayer(name);
+                    player.setTimeLimit(millis);
+                    player.setNumThreads(numSearchThreads);
+                    return player;
+                };
+            default:
+                throw new IllegalArgumentException("unknown player " + description);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        var helper = "usage: SelfPlay playerA playerB [-games N] [-size N] [-protection N] [-threads N] "
+                + "[-max-moves N] [-no-capture-limit N] [-hash MB] [-out file]";
+        if (args.length < 2) {
+            throw new IllegalArgumentException(helper);
+        }
+        var numGames = 100;
+        var size = 9;
+        var numMovesProtection = 1;
+        var numThreads = Runtime.getRuntime().availableProcessors();
+        var maxMoves = 1000;
+        var noCaptureLimit = Configuration.DEFAULTNOCAPTURELIMIT;
+        var hashSize = Configuration.DEFAULTHASHSIZE;
+        String out = null;
+        try {
+            for (int i = 2; i < args.length; i += 2) {
+                switch (args[i]) {
+                    case "-games":
+                        numGames = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "-size":
+                        size = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "-protection":
+                        numMovesProtection = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "-threads":
+                        numThreads = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "-max-moves":
+                        maxMoves = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "-no-capture-limit":
+                        noCaptureLimit = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "-hash":
+                        hashSize = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "-out":
+                        out = args[i + 1];
+                        break;
+                    default:
+                        throw new IllegalArgumentException(helper);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException(helper);
+        }
+
+        var selfPlay = new SelfPlay(parsePlayer(args[0]), parsePlayer(args[1]), size, numMovesProtection, maxMoves);
+        selfPlay.setNoCaptureLimit(noCaptureLimit);
+        selfPlay.setHashSize(hashSize);
+        var startTime = System.nanoTime();
+        var results = selfPlay.playGames(numGames, numThreads);
+        var elapsed = (System.nanoTime() - startTime) / 1_000_000;
+
+        if (out != null) {
+            try (var writer = new PrintWriter(Files.newBufferedWriter(Paths.get(out)))) {
+                writer.println("game,first,second,winner,moves,millis");
+                for (var result : results) {
+                    writer.println(result.toCsv());
+                }
+            }
+        }
+        System.out.println("A: " + args[0] + ", B: " + args[1] + ", size " + size);
+        System.out.println(summarize(results, elapsed));
+    }
+}
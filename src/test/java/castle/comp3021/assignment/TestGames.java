@@ -0,0 +1,83 @@
+package castle.comp3021.assignment;
+
+import castle.comp3021.assignment.player.RandomPlayer;
+import castle.comp3021.assignment.protocol.Configuration;
+import castle.comp3021.assignment.protocol.MoveList;
+import castle.comp3021.assignment.protocol.Player;
+import castle.comp3021.assignment.textversion.JesonMor;
+
+import java.util.Random;
+
+/**
+ * Games shared by the tests: the initial position of a board, and random games which make and unmake moves.
+ */
+public final class TestGames {
+    /**
+     * Callbacks of {@link TestGames#playRandomly(JesonMor, Random, int, Observer)}
+     */
+    public interface Observer {
+        /**
+         * Called before a move is made.
+         */
+        default void beforeMove(JesonMor game) {
+        }
+
+        /**
+         * Called after a move is made.
+         */
+        default void afterMove(JesonMor game) {
+        }
+
+        /**
+         * Called after a move is unmade.
+         */
+        default void afterUnmake(JesonMor game) {
+        }
+    }
+
+    private TestGames() {
+    }
+
+    /**
+     * @param size               size of gameboard
+     * @param numMovesProtection number of moves with capture protection
+     * @return a game between two random players with all initial pieces
+     */
+    public static JesonMor newGame(int size, int numMovesProtection) {
+        var configuration = new Configuration(size,
+                new Player[]{new RandomPlayer("White"), new RandomPlayer("Black")}, numMovesProtection);
+        configuration.setAllInitialPieces();
+        return new JesonMor(configuration);
+    }
+
+    /**
+     * Make random moves, unmaking a third of them right away, until the player to move has no available moves or
+     * the number of moves is reached, and then unmake all moves left.
+     *
+     * @param game     the game
+     * @param random   source of the moves
+     * @param numMoves maximum number of moves to make
+     * @param observer callbacks after each step
+     */
+    public static void playRandomly(JesonMor game, Random random, int numMoves, Observer observer) {
+        var moves = new MoveList();
+        var depth = game.getUndoDepth();
+        for (int i = 0; i < numMoves; i++) {
+            game.getAvailableMoves(game.getCurrentPlayer(), moves);
+            if (moves.isEmpty()) {
+                break;
+            }
+            observer.beforeMove(game);
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+            observer.afterMove(game);
+            if (random.nextInt(3) == 0) {
+                game.unmakeMove();
+                observer.afterUnmake(game);
+            }
+        }
+        while (game.getUndoDepth() > depth) {
+            game.unmakeMove();
+            observer.afterUnmake(game);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package castle.comp3021.assignment.piece;
+
+import castle.comp3021.assignment.TestGames;
+import castle.comp3021.assignment.player.RandomPlayer;
+import castle.comp3021.assignment.protocol.Configuration;
+import castle.comp3021.assignment.protocol.Game;
+import castle.comp3021.assignment.protocol.Move;
+import castle.comp3021.assignment.protocol.MoveList;
+import castle.comp3021.assignment.protocol.Player;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleEngineTest {
+    /**
+     * @return the description of the first violated rule in the order of {@link RuleEngine#getRules()}, or null
+     */
+    private static String validateInOrder(RuleEngine engine, Game game, Move move) {
+        for (var rule : engine.getRules()) {
+            if (!rule.validate(game, move)) {
+                return rule.getDescription();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A 5x5 game whose white knight on (0, 0) is blocked by the white archer on (0, 1) from moving to (1, 2), and
+     * optionally with a white archer on (1, 2) as well
+     */
+    private static JesonMor newBlockedGame(int numMovesProtection, boolean occupied) {
+        var white = new RandomPlayer("White");
+        var black = new RandomPlayer("Black");
+        var configuration = new Configuration(5, new Player[]{white, black}, numMovesProtection);
+        configuration.addInitialPiece(new Knight(white), 0, 0);
+        configuration.addInitialPiece(new Archer(white), 0, 1);
+        if (occupied) {
+            configuration.addInitialPiece(new Archer(white), 1, 2);
+        }
+        configuration.addInitialPiece(new Archer(black), 3, 1);
+        configuration.addInitialPiece(new Knight(black), 4, 4);
+        return new JesonMor(configuration);
+    }
+
+    /**
+     * Check every move between two squares against the rules checked in their original order.
+     */
+    private static void checkMessages(RuleEngine engine, Game game) {
+        var size = game.getConfiguration().getSize();
+        for (int source = 0; source < size * size; source++) {
+            for (int destination = 0; destination < size * size; destination++) {
+                var move = Move.of(source / size, source % size, destination / size, destination % size);
+                assertEquals(validateInOrder(engine, game, move), engine.validate(game, move), move::toString);
+            }
+        }
+    }
+
+    /**
+     * Check that batch validation of every move between two squares of the board agrees with validating the moves
+     * one by one.
+     */
+    private static void checkValidateAll(JesonMor game) {
+        var engine = RuleEngine.of(game.getConfiguration());
+        var size = game.getConfiguration().getSize();
+        var moves = new Move[size * size * size * size];
+        var packed = new MoveList(moves.length);
+        var bitBoard = game.getBitBoard();
+        for (int source = 0; source < size * size; source++) {
+            for (int destination = 0; destination < size * size; destination++) {
+                moves[packed.size()] = Move.of(bitBoard.x(source), bitBoard.y(source),
+                        bitBoard.x(destination), bitBoard.y(destination));
+                packed.add(source, destination, false);
+            }
+        }
+        var valid = engine.validateAll(game, moves);
+        var mask = engine.validateAll(game, packed);
+        for (int i = 0; i < moves.length; i++) {
+            var expected = engine.validate(game, moves[i]) == null;
+            assertEquals(expected, valid.get(i), moves[i]::toString);
+            assertEquals(expected, (mask[i >>> 6] & 1L << i) != 0, moves[i]::toString);
+            assertEquals(expected, engine.isValid(game, packed.get(i)), moves[i]::toString);
+        }
+    }
+
+    @Test
+    public void testValidateAllAgreesWithValidate() {
+        var random = new Random(20);
+        for (int size : new int[]{3, 5, 9}) {
+            for (int numMovesProtection : new int[]{0, 1, 5}) {
+                var game = TestGames.newGame(size, numMovesProtection);
+                checkValidateAll(game);
+                TestGames.playRandomly(game, random, 30, new TestGames.Observer() {
+                    @Override
+                    public void afterMove(JesonMor game) {
+                        checkValidateAll(game);
+                    }
+                });
+            }
+        }
+    }
+
+    @Test
+    public void testMessagesAfterReorder() {
+        // an engine not used by the other tests
+        var engine = RuleEngine.of(3);
+        var game = newBlockedGame(3, false);
+        assertTrue(engine.toString().contains("knight order [OccupiedRule"));
+        assertTrue(engine.toString().contains("archer order [OccupiedRule"));
+
+        // moves rejected by the knight block and archer move rules only, until the checks are reordered
+        var blocked = Move.of(0, 0, 1, 2);
+        var diagonal = Move.of(0, 1, 1, 2);
+        var blockDescription = new KnightBlockRule().getDescription();
+        var archerDescription = new ArcherMoveRule().getDescription();
+        for (int i = 0; i < 4096; i++) {
+            assertEquals(blockDescription, engine.validate(game, blocked));
+            assertEquals(archerDescription, engine.validate(game, diagonal));
+        }
+        assertTrue(engine.toString().contains("knight order [KnightBlockRule"), engine::toString);
+        assertTrue(engine.toString().contains("archer order [ArcherMoveRule"), engine::toString);
+
+        // the knight block and archer move rules are checked first, but the first violated rule in the original order
+        // is still reported
+        var occupiedGame = newBlockedGame(3, true);
+        assertEquals(new OccupiedRule().getDescription(), engine.validate(occupiedGame, blocked));
+        var protectedCapture = Move.of(0, 1, 3, 1);
+        assertEquals(new FirstNMovesProtectionRule(3).getDescription(), engine.validate(game, protectedCapture));
+        checkMessages(engine, game);
+        checkMessages(engine, occupiedGame);
+    }
+}
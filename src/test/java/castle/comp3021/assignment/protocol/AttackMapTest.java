@@ -0,0 +1,73 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.TestGames;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttackMapTest {
+    /**
+     * Check the incremental map against one built from scratch, and that the enemy pieces on squares attacked by the
+     * player to move are exactly the targets of its captures.
+     */
+    private static void check(JesonMor game) {
+        var attackMap = game.getAttackMap();
+        assertEquals(AttackMap.of(game.getBitBoard()), attackMap);
+
+        var player = game.getCurrentPlayerID();
+        var moves = new MoveList();
+        game.getAvailableMoves(game.getCurrentPlayer(), moves);
+        var captured = new HashSet<Integer>();
+        for (int i = 0; i < moves.size(); i++) {
+            if (MoveList.isCapture(moves.get(i))) {
+                captured.add(MoveList.destination(moves.get(i)));
+            }
+        }
+        var attacked = new HashSet<Integer>();
+        var enemy = game.getBitBoard().getPlayerOccupancy(1 - player);
+        for (int square = BitBoard.nextSquare(enemy, 0); square >= 0; square = BitBoard.nextSquare(enemy, square + 1)) {
+            if (attackMap.isAttacked(player, square)) {
+                attacked.add(square);
+            }
+        }
+        assertEquals(captured, attacked);
+    }
+
+    @Test
+    public void testIncrementalMatchesRebuilt() {
+        var random = new Random(11);
+        for (int size : new int[]{3, 5, 9, 15, 25}) {
+            for (int i = 0; i < 5; i++) {
+                var game = TestGames.newGame(size, 0);
+                check(game);
+                TestGames.playRandomly(game, random, 200, new TestGames.Observer() {
+                    @Override
+                    public void afterMove(JesonMor game) {
+                        check(game);
+                    }
+
+                    @Override
+                    public void afterUnmake(JesonMor game) {
+                        check(game);
+                    }
+                });
+            }
+        }
+    }
+
+    @Test
+    public void testCopy() throws CloneNotSupportedException {
+        var game = TestGames.newGame(9, 0);
+        var attackMap = game.getAttackMap();
+        var copy = game.clone();
+        var moves = new MoveList();
+        copy.getAvailableMoves(copy.getCurrentPlayer(), moves);
+        copy.makeMove(moves.get(0));
+        assertEquals(AttackMap.of(copy.getBitBoard()), copy.getAttackMap());
+        assertEquals(AttackMap.of(game.getBitBoard()), attackMap);
+    }
+}
@@ -0,0 +1,160 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.TestGames;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitBoardTest {
+    /**
+     * Check that the count of each player is the number of its pieces on the board.
+     */
+    private static void checkCounts(JesonMor game) {
+        var bitBoard = game.getBitBoard();
+        var size = bitBoard.getSize();
+        var expected = new int[BitBoard.NUM_PLAYERS];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                var piece = game.getPiece(x, y);
+                if (piece != null) {
+                    expected[game.getPlayerIndex(piece.getPlayer())]++;
+                }
+            }
+        }
+        for (int player = 0; player < BitBoard.NUM_PLAYERS; player++) {
+            assertEquals(expected[player], bitBoard.count(player));
+            assertEquals(BitBoard.count(bitBoard.getPlayerOccupancy(player)), bitBoard.count(player));
+        }
+    }
+
+    /**
+     * @return the dense piece lists of both players
+     */
+    private static int[][] pieceLists(BitBoard bitBoard) {
+        var lists = new int[BitBoard.NUM_PLAYERS][];
+        for (int player = 0; player < BitBoard.NUM_PLAYERS; player++) {
+            lists[player] = Arrays.copyOf(bitBoard.getPieces(player), bitBoard.count(player));
+        }
+        return lists;
+    }
+
+    /**
+     * Check that the piece list of each player holds exactly the squares of its pieces on the board, and that
+     * {@link BitBoard#pieceIndexAt(int)} points into the list.
+     */
+    private static void checkPieceLists(JesonMor game) {
+        var bitBoard = game.getBitBoard();
+        var size = bitBoard.getSize();
+        for (int player = 0; player < BitBoard.NUM_PLAYERS; player++) {
+            var expected = new HashSet<Integer>();
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    var piece = game.getPiece(x, y);
+                    if (piece != null && game.getPlayerIndex(piece.getPlayer()) == player) {
+                        expected.add(bitBoard.square(x, y));
+                    }
+                }
+            }
+            var pieces = bitBoard.getPieces(player);
+            var listed = new HashSet<Integer>();
+            for (int i = 0; i < bitBoard.count(player); i++) {
+                assertTrue(listed.add(pieces[i]), "square listed twice");
+                assertEquals(i, bitBoard.pieceIndexAt(pieces[i]));
+            }
+            assertEquals(expected, listed);
+        }
+    }
+
+    @Test
+    public void testCountsOverRandomGames() {
+        var random = new Random(17);
+        for (int size : new int[]{3, 5, 9, 15, 25}) {
+            for (int numMovesProtection : new int[]{0, 1}) {
+                var game = TestGames.newGame(size, numMovesProtection);
+                checkCounts(game);
+                TestGames.playRandomly(game, random, 200, new TestGames.Observer() {
+                    @Override
+                    public void afterMove(JesonMor game) {
+                        checkCounts(game);
+                    }
+
+                    @Override
+                    public void afterUnmake(JesonMor game) {
+                        checkCounts(game);
+                    }
+                });
+            }
+        }
+    }
+
+    @Test
+    public void testCopyHasOwnCounts() throws CloneNotSupportedException {
+        var game = TestGames.newGame(5, 0);
+        var moves = new MoveList();
+        var capture = -1;
+        for (int ply = 0; ply < 100 && capture < 0; ply++) {
+            game.getAvailableMoves(game.getCurrentPlayer(), moves);
+            for (int i = 0; i < moves.size() && capture < 0; i++) {
+                if (MoveList.isCapture(moves.get(i))) {
+                    capture = moves.get(i);
+                }
+            }
+            if (capture < 0) {
+                game.makeMove(moves.get(0));
+            }
+        }
+        assertTrue(capture >= 0, "no capture found");
+        var opponent = 1 - game.getCurrentPlayerID();
+        var copy = game.getBitBoard().clone();
+        var count = copy.count(opponent);
+        game.makeMove(capture);
+        assertEquals(count - 1, game.getBitBoard().count(opponent));
+        assertEquals(count, copy.count(opponent));
+    }
+
+    @Test
+    public void testPieceListsOverRandomGames() {
+        var random = new Random(13);
+        for (int size : new int[]{3, 5, 9, 15, 25}) {
+            for (int numMovesProtection : new int[]{0, 1}) {
+                var game = TestGames.newGame(size, numMovesProtection);
+                var lists = new ArrayDeque<int[][]>();
+                checkPieceLists(game);
+                TestGames.playRandomly(game, random, 200, new TestGames.Observer() {
+                    @Override
+                    public void beforeMove(JesonMor game) {
+                        lists.push(pieceLists(game.getBitBoard()));
+                    }
+
+                    @Override
+                    public void afterMove(JesonMor game) {
+                        checkPieceLists(game);
+                    }
+
+                    @Override
+                    public void afterUnmake(JesonMor game) {
+                        // unmake puts the captured piece back at its index, so the lists are restored exactly
+                        assertArrayEquals(lists.pop(), pieceLists(game.getBitBoard()));
+                    }
+                });
+            }
+        }
+    }
+
+    @Test
+    public void testCopyHasOwnPieceLists() throws CloneNotSupportedException {
+        var game = TestGames.newGame(9, 0);
+        var copy = game.getBitBoard().clone();
+        var before = pieceLists(game.getBitBoard());
+        var moves = new MoveList();
+        game.getAvailableMoves(game.getCurrentPlayer(), moves);
+        game.makeMove(moves.get(0));
+        assertArrayEquals(before, pieceLists(copy));
+    }
+}
@@ -0,0 +1,96 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.TestGames;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveCacheTest {
+    /**
+     * The cached moves come in the same order as generated, piece by piece.
+     */
+    private static void assertSameMoves(MoveList expected, MoveList actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i), "move " + i);
+        }
+    }
+
+    /**
+     * The cache compares every query against generating the moves from scratch, and throws if they differ.
+     */
+    @Test
+    public void testConsistentOverRandomGames() {
+        var random = new Random(7);
+        var moves = new MoveList();
+        for (int numMovesProtection : new int[]{0, 1, 5}) {
+            for (int size : new int[]{3, 5, 9, 15, 25}) {
+                for (int i = 0; i < 5; i++) {
+                    var game = TestGames.newGame(size, numMovesProtection);
+                    game.setCheckMoveCache(true);
+                    TestGames.playRandomly(game, random, 200, new TestGames.Observer() {
+                        @Override
+                        public void afterMove(JesonMor game) {
+                            // the opponent's moves are cached too
+                            var opponent = game.getConfiguration().getPlayers()[1 - game.getCurrentPlayerID()];
+                            game.getAvailableMoves(opponent, moves);
+                        }
+
+                        @Override
+                        public void afterUnmake(JesonMor game) {
+                            game.getAvailableMoves(game.getCurrentPlayer(), moves);
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSameMovesWithoutCache() {
+        var random = new Random(3);
+        var cached = new MoveList();
+        var generated = new MoveList();
+        var game = TestGames.newGame(9, 1);
+        TestGames.playRandomly(game, random, 200, new TestGames.Observer() {
+            @Override
+            public void afterMove(JesonMor game) {
+                check(game);
+            }
+
+            @Override
+            public void afterUnmake(JesonMor game) {
+                check(game);
+            }
+
+            private void check(JesonMor game) {
+                game.getAvailableMoves(game.getCurrentPlayer(), cached);
+                var copy = assertDoesNotThrow(() -> game.clone());
+                copy.setCacheMoves(false);
+                copy.getAvailableMoves(copy.getCurrentPlayer(), generated);
+                assertSameMoves(generated, cached);
+            }
+        });
+    }
+
+    @Test
+    public void testCopyKeepsCache() throws CloneNotSupportedException {
+        var random = new Random(5);
+        var moves = new MoveList();
+        var game = TestGames.newGame(9, 0);
+        game.setCheckMoveCache(true);
+        for (int ply = 0; ply < 20; ply++) {
+            game.getAvailableMoves(game.getCurrentPlayer(), moves);
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+        }
+        var copy = game.clone();
+        copy.getAvailableMoves(copy.getCurrentPlayer(), moves);
+        copy.makeMove(moves.get(0));
+        copy.getAvailableMoves(copy.getCurrentPlayer(), moves);
+        // moves in the copy do not leak into the cache of the original
+        game.getAvailableMoves(game.getCurrentPlayer(), moves);
+    }
+}
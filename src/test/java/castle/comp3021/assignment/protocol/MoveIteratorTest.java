@@ -0,0 +1,154 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.TestGames;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveIteratorTest {
+    private static List<Integer> toList(MoveList moves) {
+        var list = new ArrayList<Integer>(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            list.add(moves.get(i));
+        }
+        return list;
+    }
+
+    /**
+     * @return the moves of the list which are captures or not, in order
+     */
+    private static List<Integer> filter(MoveList moves, boolean captures) {
+        var list = new ArrayList<Integer>();
+        for (int i = 0; i < moves.size(); i++) {
+            if (MoveList.isCapture(moves.get(i)) == captures) {
+                list.add(moves.get(i));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * @return a random stored or killer move: an available move, a move with a wrong capture flag, a random packed
+     * move or none
+     */
+    private static int randomSpecial(Random random, MoveList moves) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return moves.isEmpty() ? MoveIterator.NONE : moves.get(random.nextInt(moves.size()));
+            case 1:
+                return moves.isEmpty() ? MoveIterator.NONE : moves.get(random.nextInt(moves.size())) ^ (1 << 20);
+            case 2:
+                return random.nextInt(1 << 21);
+            default:
+                return MoveIterator.NONE;
+        }
+    }
+
+    /**
+     * Check that the iterator, with random stored and killer moves, and the other generators give the moves of
+     * {@link Game#getAvailableMoves(Player, MoveList)} exactly once.
+     */
+    private static void checkMoves(JesonMor game, Random random) {
+        var player = game.getCurrentPlayer();
+        var moves = new MoveList();
+        game.getAvailableMoves(player, moves);
+        Set<Integer> expected = new HashSet<>(toList(moves));
+
+        var iterator = new MoveIterator();
+        iterator.reset(game, game.getCurrentPlayerID(), randomSpecial(random, moves),
+                randomSpecial(random, moves), randomSpecial(random, moves));
+        var iterated = new ArrayList<Integer>();
+        for (int move = iterator.next(); move != MoveIterator.NONE; move = iterator.next()) {
+            iterated.add(move);
+        }
+        assertEquals(moves.size(), iterated.size(), "duplicate moves");
+        assertEquals(expected, new HashSet<>(iterated));
+
+        var captures = new MoveList();
+        game.getAvailableCaptures(player, captures);
+        assertEquals(filter(moves, true), toList(captures));
+        var quiet = new MoveList();
+        game.getAvailableQuietMoves(player, quiet);
+        assertEquals(new HashSet<>(filter(moves, false)), new HashSet<>(toList(quiet)));
+
+        iterator.resetCaptures(game, game.getCurrentPlayerID());
+        var iteratedCaptures = new HashSet<Integer>();
+        for (int move = iterator.next(); move != MoveIterator.NONE; move = iterator.next()) {
+            iteratedCaptures.add(move);
+        }
+        assertEquals(new HashSet<>(filter(moves, true)), iteratedCaptures);
+
+        var first = game.getFirstAvailableMove(player);
+        if (moves.isEmpty()) {
+            assertEquals(MoveIterator.NONE, first);
+        } else {
+            assertTrue(expected.contains(first));
+        }
+    }
+
+    /**
+     * Check that the iterator gives the stored move first, then captures, then moves into or out of the central
+     * square, then the other quiet moves.
+     */
+    private static void checkStageOrder(JesonMor game, Random random) {
+        var moves = new MoveList();
+        game.getAvailableMoves(game.getCurrentPlayer(), moves);
+        if (moves.isEmpty()) {
+            return;
+        }
+        var center = game.getBitBoard().square(game.getCentralPlace());
+        var stored = moves.get(random.nextInt(moves.size()));
+        var iterator = new MoveIterator();
+        iterator.reset(game, game.getCurrentPlayerID(), stored, MoveIterator.NONE, MoveIterator.NONE);
+        assertEquals(stored, iterator.next());
+        var stage = 0;
+        for (int move = iterator.next(); move != MoveIterator.NONE; move = iterator.next()) {
+            var central = MoveList.source(move) == center || MoveList.destination(move) == center;
+            var moveStage = MoveList.isCapture(move) ? 0 : central ? 1 : 2;
+            assertTrue(moveStage >= stage);
+            stage = moveStage;
+        }
+    }
+
+    @Test
+    public void testSameMovesAsGenerator() {
+        var random = new Random(5);
+        for (int size : new int[]{3, 5, 9, 15, 25}) {
+            for (int numMovesProtection : new int[]{0, 1, 30}) {
+                var game = TestGames.newGame(size, numMovesProtection);
+                checkMoves(game, random);
+                TestGames.playRandomly(game, random, 200, new TestGames.Observer() {
+                    @Override
+                    public void afterMove(JesonMor game) {
+                        checkMoves(game, random);
+                    }
+
+                    @Override
+                    public void afterUnmake(JesonMor game) {
+                        checkMoves(game, random);
+                    }
+                });
+            }
+        }
+    }
+
+    @Test
+    public void testStageOrder() {
+        var random = new Random(9);
+        var game = TestGames.newGame(9, 0);
+        checkStageOrder(game, random);
+        TestGames.playRandomly(game, random, 200, new TestGames.Observer() {
+            @Override
+            public void afterMove(JesonMor game) {
+                checkStageOrder(game, random);
+            }
+        });
+    }
+}
@@ -0,0 +1,84 @@
+package castle.comp3021.assignment.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionHistoryTest {
+    @Test
+    public void testCount() {
+        var history = new PositionHistory();
+        assertEquals(0, history.count(42));
+        assertEquals(1, history.add(42));
+        assertEquals(1, history.add(43));
+        assertEquals(2, history.add(42));
+        assertEquals(3, history.add(42));
+        assertEquals(3, history.count(42));
+        assertEquals(1, history.count(43));
+        assertEquals(0, history.count(44));
+        assertEquals(4, history.getLength());
+    }
+
+    @Test
+    public void testClear() {
+        var history = new PositionHistory();
+        history.add(42);
+        history.add(42);
+        history.clear();
+        assertEquals(0, history.count(42));
+        assertEquals(0, history.getLength());
+        assertEquals(1, history.add(42));
+        assertEquals(1, history.getLength());
+    }
+
+    @Test
+    public void testGrow() {
+        var history = new PositionHistory();
+        // keys which differ in the high bits only, and far more than the initial capacity
+        for (long i = 0; i < 5000; i++) {
+            assertEquals(1, history.add(i << 40));
+        }
+        for (long i = 0; i < 5000; i += 2) {
+            assertEquals(2, history.add(i << 40));
+        }
+        for (long i = 0; i < 5000; i++) {
+            assertEquals(i % 2 == 0 ? 2 : 1, history.count(i << 40));
+        }
+        assertEquals(0, history.count(5000L << 40));
+        assertEquals(7500, history.getLength());
+    }
+
+    @Test
+    public void testGenerationWrap() throws ReflectiveOperationException {
+        var history = new PositionHistory();
+        var generation = PositionHistory.class.getDeclaredField("generation");
+        generation.setAccessible(true);
+        // the last generation before the counter wraps around
+        generation.setInt(history, -1);
+        history.add(42);
+        history.add(42);
+        assertEquals(2, history.count(42));
+        history.clear();
+        assertEquals(1, generation.getInt(history));
+        assertEquals(0, history.count(42));
+        assertEquals(1, history.add(42));
+        // slots of earlier generations are not mistaken for the current one
+        history.clear();
+        generation.setInt(history, -1);
+        assertEquals(0, history.count(42));
+        history.clear();
+        assertEquals(0, history.count(42));
+    }
+
+    @Test
+    public void testCopy() throws CloneNotSupportedException {
+        var history = new PositionHistory();
+        history.add(42);
+        var copy = history.clone();
+        copy.add(42);
+        copy.add(43);
+        assertEquals(1, history.count(42));
+        assertEquals(0, history.count(43));
+        assertEquals(2, copy.count(42));
+    }
+}
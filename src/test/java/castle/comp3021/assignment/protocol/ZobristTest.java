@@ -0,0 +1,126 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.TestGames;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZobristTest {
+    /**
+     * @return the key of the game computed from scratch from its pieces
+     */
+    private static long rebuildKey(JesonMor game) {
+        var size = game.getConfiguration().getSize();
+        var zobrist = Zobrist.of(size);
+        var key = game.getCurrentPlayerID() == 0 ? 0L : zobrist.side();
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                var piece = game.getPiece(x, y);
+                if (piece != null) {
+                    key ^= zobrist.piece(game.getPlayerIndex(piece.getPlayer()), BitBoard.typeOf(piece),
+                            x * size + y);
+                }
+            }
+        }
+        return key;
+    }
+
+    /**
+     * @return a quiet move of the current player which it can move back after the opponent moves, or -1
+     */
+    private static int findReversible(JesonMor game) {
+        var moves = new MoveList();
+        var replies = new MoveList();
+        var back = new MoveList();
+        game.getAvailableMoves(game.getCurrentPlayer(), moves);
+        for (int i = 0; i < moves.size(); i++) {
+            var move = moves.get(i);
+            if (MoveList.isCapture(move)) {
+                continue;
+            }
+            game.makeMove(move);
+            game.getAvailableMoves(game.getCurrentPlayer(), replies);
+            var reversible = false;
+            if (!replies.isEmpty()) {
+                game.makeMove(replies.get(0));
+                game.getAvailableMoves(game.getCurrentPlayer(), back);
+                reversible = back.contains(reverse(move));
+                game.unmakeMove();
+            }
+            game.unmakeMove();
+            if (reversible) {
+                return move;
+            }
+        }
+        return -1;
+    }
+
+    private static int reverse(int move) {
+        return MoveList.encode(MoveList.destination(move), MoveList.source(move), false);
+    }
+
+    @Test
+    public void testKeyMatchesPieces() {
+        var random = new Random(11);
+        for (int size : new int[]{3, 5, 9, 15, 25}) {
+            var game = TestGames.newGame(size, random.nextInt(3));
+            var keys = new ArrayDeque<Long>();
+            assertEquals(rebuildKey(game), game.getZobristKey());
+            TestGames.playRandomly(game, random, 200, new TestGames.Observer() {
+                @Override
+                public void beforeMove(JesonMor game) {
+                    keys.push(game.getZobristKey());
+                }
+
+                @Override
+                public void afterMove(JesonMor game) {
+                    assertEquals(rebuildKey(game), game.getZobristKey());
+                }
+
+                @Override
+                public void afterUnmake(JesonMor game) {
+                    assertEquals(keys.pop(), game.getZobristKey());
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testSamePositionSameKey() {
+        var game = TestGames.newGame(9, 1);
+        var initial = game.getZobristKey();
+        var first = findReversible(game);
+        assertNotEquals(-1, first);
+        game.makeMove(first);
+        assertNotEquals(initial, game.getZobristKey());
+        var second = findReversible(game);
+        assertNotEquals(-1, second);
+        game.makeMove(second);
+        var moves = new MoveList();
+        game.getAvailableMoves(game.getCurrentPlayer(), moves);
+        assertTrue(moves.contains(reverse(first)));
+        game.makeMove(reverse(first));
+        assertNotEquals(initial, game.getZobristKey());
+        game.getAvailableMoves(game.getCurrentPlayer(), moves);
+        assertTrue(moves.contains(reverse(second)));
+        game.makeMove(reverse(second));
+        // the same pieces on the same squares with the same side to move, reached by other moves
+        assertEquals(initial, game.getZobristKey());
+        assertEquals(rebuildKey(game), game.getZobristKey());
+    }
+
+    @Test
+    public void testSideToMove() {
+        var game = TestGames.newGame(9, 1);
+        var zobrist = Zobrist.of(9);
+        assertEquals(game.getBitBoard().getKey(), game.getZobristKey());
+        var moves = new MoveList();
+        game.getAvailableMoves(game.getCurrentPlayer(), moves);
+        game.makeMove(moves.get(0));
+        assertEquals(game.getBitBoard().getKey() ^ zobrist.side(), game.getZobristKey());
+    }
+}
@@ -0,0 +1,156 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.protocol.MoveList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+    /**
+     * Number of buckets of a 1 MB table: keys differing by a multiple of it fall in the same bucket
+     */
+    private static final long NUM_BUCKETS = (1L << 20) / (TranspositionTable.BUCKET_SIZE * 16);
+
+    private static final long KEY = 0x9E3779B97F4A7C15L;
+
+    @Test
+    public void testStoreAndProbe() {
+        var table = new TranspositionTable(1);
+        var move = MoveList.encode(12, 345, true);
+        table.store(KEY, 7, TranspositionTable.LOWER, -1234, move);
+        var data = table.probe(KEY);
+        assertNotEquals(0, data);
+        assertEquals(move, TranspositionTable.move(data));
+        assertEquals(-1234, TranspositionTable.score(data));
+        assertEquals(7, TranspositionTable.depth(data));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(data));
+        assertEquals(0, table.probe(KEY + 1));
+        assertEquals(0, table.probe(KEY + NUM_BUCKETS));
+    }
+
+    @Test
+    public void testClamp() {
+        var table = new TranspositionTable(1);
+        table.store(KEY, 300, TranspositionTable.EXACT, 100000, 0);
+        assertEquals(255, TranspositionTable.depth(table.probe(KEY)));
+        assertEquals(Short.MAX_VALUE, TranspositionTable.score(table.probe(KEY)));
+        table.store(KEY, -1, TranspositionTable.EXACT, -100000, 0);
+        assertEquals(0, TranspositionTable.depth(table.probe(KEY)));
+        assertEquals(Short.MIN_VALUE, TranspositionTable.score(table.probe(KEY)));
+    }
+
+    @Test
+    public void testSamePosition() {
+        var table = new TranspositionTable(1);
+        var move = MoveList.encode(1, 2, false);
+        table.store(KEY, 8, TranspositionTable.EXACT, 50, move);
+        // a shallower bound of the same search does not replace a deeper result
+        table.store(KEY, 3, TranspositionTable.UPPER, -10, MoveList.encode(3, 4, false));
+        assertEquals(8, TranspositionTable.depth(table.probe(KEY)));
+        assertEquals(50, TranspositionTable.score(table.probe(KEY)));
+        // an exact score does, and keeps the known move if it has none
+        table.store(KEY, 2, TranspositionTable.EXACT, 20, 0);
+        var data = table.probe(KEY);
+        assertEquals(2, TranspositionTable.depth(data));
+        assertEquals(20, TranspositionTable.score(data));
+        assertEquals(move, TranspositionTable.move(data));
+        // so does a shallower bound of a later search
+        table.newSearch();
+        table.store(KEY, 1, TranspositionTable.LOWER, 5, 0);
+        assertEquals(1, TranspositionTable.depth(table.probe(KEY)));
+        assertEquals(move, TranspositionTable.move(table.probe(KEY)));
+    }
+
+    @Test
+    public void testReplaceShallowest() {
+        var table = new TranspositionTable(1);
+        for (int i = 0; i < TranspositionTable.BUCKET_SIZE; i++) {
+            table.store(KEY + i * NUM_BUCKETS, 10 + i, TranspositionTable.EXACT, i, 0);
+        }
+        for (int i = 0; i < TranspositionTable.BUCKET_SIZE; i++) {
+            assertNotEquals(0, table.probe(KEY + i * NUM_BUCKETS));
+        }
+        var key = KEY + TranspositionTable.BUCKET_SIZE * NUM_BUCKETS;
+        table.store(key, 1, TranspositionTable.EXACT, 0, 0);
+        assertNotEquals(0, table.probe(key));
+        assertEquals(0, table.probe(KEY));
+        for (int i = 1; i < TranspositionTable.BUCKET_SIZE; i++) {
+            assertNotEquals(0, table.probe(KEY + i * NUM_BUCKETS));
+        }
+    }
+
+    @Test
+    public void testReplaceOlder() {
+        var table = new TranspositionTable(1);
+        for (int i = 0; i < TranspositionTable.BUCKET_SIZE; i++) {
+            table.store(KEY + i * NUM_BUCKETS, 10, TranspositionTable.EXACT, i, 0);
+            if (i == 0) {
+                // entries of older searches are replaced before deeper ones
+                for (int j = 0; j < 3; j++) {
+                    table.newSearch();
+                }
+            }
+        }
+        var key = KEY + TranspositionTable.BUCKET_SIZE * NUM_BUCKETS;
+        table.store(key, 1, TranspositionTable.EXACT, 0, 0);
+        assertNotEquals(0, table.probe(key));
+        assertEquals(0, table.probe(KEY));
+    }
+
+    @Test
+    public void testUsageAndClear() {
+        var table = new TranspositionTable(1);
+        assertEquals(0, table.getUsage());
+        for (long bucket = 0; bucket < 250; bucket++) {
+            for (int i = 0; i < TranspositionTable.BUCKET_SIZE; i++) {
+                table.store(bucket + (i + 1) * NUM_BUCKETS, 5, TranspositionTable.EXACT, 0, 0);
+            }
+        }
+        assertEquals(1000, table.getUsage());
+        table.newSearch();
+        assertEquals(0, table.getUsage());
+        assertNotEquals(0, table.probe(NUM_BUCKETS));
+        table.clear();
+        assertEquals(0, table.probe(NUM_BUCKETS));
+    }
+
+    @Test
+    public void testSize() {
+        assertEquals(1L << 20, new TranspositionTable(1).getSizeInBytes());
+        assertEquals(1L << 21, new TranspositionTable(3).getSizeInBytes());
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(-1));
+    }
+
+    /**
+     * Threads storing into the same buckets never let a probe see an entry mixed from two stores.
+     */
+    @Test
+    public void testConcurrentStores() throws InterruptedException {
+        var table = new TranspositionTable(1);
+        var numMismatches = new AtomicInteger();
+        var threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            var thread = new Thread(() -> {
+                for (int i = 0; i < 200000; i++) {
+                    var key = KEY + (i % 16) * NUM_BUCKETS;
+                    var value = (int) (key & 0xFFF);
+                    table.store(key, i & 0x3F, TranspositionTable.EXACT, value, value);
+                    var data = table.probe(key);
+                    if (data != 0 && (TranspositionTable.score(data) != value || TranspositionTable.move(data) != value)) {
+                        numMismatches.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, numMismatches.get());
+    }
+}
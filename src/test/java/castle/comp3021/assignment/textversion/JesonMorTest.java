@@ -0,0 +1,199 @@
+package castle.comp3021.assignment.textversion;
+
+import castle.comp3021.assignment.TestGames;
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.player.RandomPlayer;
+import castle.comp3021.assignment.protocol.BitBoard;
+import castle.comp3021.assignment.protocol.Color;
+import castle.comp3021.assignment.protocol.Configuration;
+import castle.comp3021.assignment.protocol.Game;
+import castle.comp3021.assignment.protocol.Move;
+import castle.comp3021.assignment.protocol.MoveList;
+import castle.comp3021.assignment.protocol.Piece;
+import castle.comp3021.assignment.protocol.Player;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JesonMorTest {
+    /**
+     * Pieces, number of moves and scores of a position
+     */
+    private static final class Snapshot {
+        private final Piece[][] pieces;
+        private final int numMoves;
+        private final int score1;
+        private final int score2;
+
+        private Snapshot(JesonMor game) {
+            this.pieces = piecesOf(game);
+            this.numMoves = game.getNumMoves();
+            this.score1 = game.getConfiguration().getPlayers()[0].getScore();
+            this.score2 = game.getConfiguration().getPlayers()[1].getScore();
+        }
+
+        private void assertRestored(JesonMor game) {
+            var restored = new Snapshot(game);
+            for (int x = 0; x < pieces.length; x++) {
+                assertArrayEquals(pieces[x], restored.pieces[x]);
+            }
+            assertEquals(numMoves, restored.numMoves);
+            assertEquals(score1, restored.score1);
+            assertEquals(score2, restored.score2);
+        }
+    }
+
+    /**
+     * A player which moves its only piece back and forth between two squares
+     */
+    private static final class ShuttlePlayer extends Player {
+        private final int first;
+        private final int second;
+
+        private ShuttlePlayer(String name, int first, int second) {
+            super(name, Color.DEFAULT);
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public @NotNull Move nextMove(Game game, Move[] availableMoves) {
+            return game.toMove(this.nextMove(game, new MoveList()));
+        }
+
+        @Override
+        public int nextMove(Game game, MoveList availableMoves) {
+            return game.getBitBoard().isOccupied(first)
+                    ? MoveList.encode(first, second, false) : MoveList.encode(second, first, false);
+        }
+    }
+
+    /**
+     * A game on a 5x5 board where white shuttles a knight between (0, 0) and (1, 2), scoring 3 per move, and black
+     * shuttles a piece between (4, 4) and (3, 2) if it is a knight, or (4, 3) if it is an archer, scoring 3 or 1.
+     */
+    private static JesonMor newShuttleGame(boolean blackKnight, int noCaptureLimit) {
+        var white = new ShuttlePlayer("White", 0, 7);
+        var black = new ShuttlePlayer("Black", 24, blackKnight ? 17 : 23);
+        var configuration = new Configuration(5, new Player[]{white, black}, 0);
+        configuration.addInitialPiece(new Knight(white), 0, 0);
+        configuration.addInitialPiece(blackKnight ? new Knight(black) : new Archer(black), 4, 4);
+        configuration.setNoCaptureLimit(noCaptureLimit);
+        return new JesonMor(configuration);
+    }
+
+    private static Piece[][] piecesOf(JesonMor game) {
+        var size = game.getConfiguration().getSize();
+        var pieces = new Piece[size][size];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                pieces[x][y] = game.getPiece(x, y);
+            }
+        }
+        return pieces;
+    }
+
+    /**
+     * @return the bitboard built from scratch from the pieces of the game
+     */
+    private static BitBoard rebuild(JesonMor game) {
+        return BitBoard.of(game.getConfiguration().getSize(), piecesOf(game), game.getConfiguration().getPlayers());
+    }
+
+    @Test
+    public void testUnmakeRestoresPosition() {
+        var random = new Random(7);
+        for (int size : new int[]{3, 5, 9, 15}) {
+            for (int numMovesProtection : new int[]{0, 1, 5}) {
+                var game = TestGames.newGame(size, numMovesProtection);
+                var snapshots = new ArrayDeque<Snapshot>();
+                TestGames.playRandomly(game, random, 200, new TestGames.Observer() {
+                    @Override
+                    public void beforeMove(JesonMor game) {
+                        snapshots.push(new Snapshot(game));
+                    }
+
+                    @Override
+                    public void afterMove(JesonMor game) {
+                        assertEquals(rebuild(game), game.getBitBoard());
+                        assertEquals(snapshots.size(), game.getUndoDepth());
+                    }
+
+                    @Override
+                    public void afterUnmake(JesonMor game) {
+                        snapshots.pop().assertRestored(game);
+                        assertEquals(rebuild(game), game.getBitBoard());
+                    }
+                });
+                assertEquals(0, game.getUndoDepth());
+            }
+        }
+    }
+
+    @Test
+    public void testUnmakeWithoutMoves() {
+        var game = TestGames.newGame(5, 1);
+        assertThrows(IllegalStateException.class, game::unmakeMove);
+    }
+
+    @Test
+    public void testWinnerWhenAllCaptured() {
+        var white = new RandomPlayer("White");
+        var black = new RandomPlayer("Black");
+        var configuration = new Configuration(5, new Player[]{white, black}, 0);
+        var knight = new Knight(white);
+        configuration.addInitialPiece(knight, 0, 0);
+        configuration.addInitialPiece(new Archer(black), 1, 2);
+        var game = new JesonMor(configuration);
+        assertEquals(1, game.getBitBoard().count(0));
+        assertEquals(1, game.getBitBoard().count(1));
+
+        var capture = MoveList.encode(game.getBitBoard().square(0, 0), game.getBitBoard().square(1, 2), true);
+        var moves = new MoveList();
+        game.getAvailableMoves(white, moves);
+        assertTrue(moves.contains(capture));
+        game.makeMove(capture);
+        assertEquals(0, game.getBitBoard().count(1));
+        assertSame(white, game.getWinner(white, knight, game.toMove(capture)));
+
+        game.unmakeMove();
+        assertEquals(1, game.getBitBoard().count(1));
+        var quiet = MoveList.encode(game.getBitBoard().square(0, 0), game.getBitBoard().square(2, 1), false);
+        game.makeMove(quiet);
+        assertNull(game.getWinner(white, knight, game.toMove(quiet)));
+    }
+
+    @Test
+    public void testRepetitionDraw() {
+        // the starting position occurs for the third time after 8 moves
+        var game = newShuttleGame(true, 0);
+        assertNull(game.playQuietly(100));
+        assertEquals(8, game.getNumMoves());
+        game = newShuttleGame(true, 0);
+        assertNull(game.start());
+        assertEquals(8, game.getNumMoves());
+    }
+
+    @Test
+    public void testNoCaptureLimit() {
+        // equal scores: a draw
+        var game = newShuttleGame(true, 6);
+        assertNull(game.playQuietly(100));
+        assertEquals(6, game.getNumMoves());
+        assertEquals(9, game.getConfiguration().getPlayers()[0].getScore());
+        assertEquals(9, game.getConfiguration().getPlayers()[1].getScore());
+
+        // the player with lower score wins
+        game = newShuttleGame(false, 6);
+        var black = game.getConfiguration().getPlayers()[1];
+        assertSame(black, game.playQuietly(100));
+        assertEquals(6, game.getNumMoves());
+        assertEquals(9, game.getConfiguration().getPlayers()[0].getScore());
+        assertEquals(3, black.getScore());
+    }
+}
@@ -0,0 +1,52 @@
+package castle.comp3021.assignment.textversion;
+
+import castle.comp3021.assignment.TestGames;
+import castle.comp3021.assignment.protocol.MoveList;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerftTest {
+    /**
+     * Known counts of leaf nodes, as {size, protected moves, depth, count}
+     */
+    private static final long[][] COUNTS = {
+            {3, 0, 4, 20},
+            {3, 1, 4, 12},
+            {5, 0, 1, 10},
+            {5, 0, 2, 84},
+            {5, 0, 3, 1010},
+            {5, 0, 4, 11994},
+            {7, 1, 3, 9410},
+            {7, 1, 4, 218515},
+    };
+
+    @Test
+    public void testKnownCounts() {
+        for (var count : COUNTS) {
+            var game = TestGames.newGame((int) count[0], (int) count[1]);
+            assertEquals(count[3], new Perft(game, null).perft((int) count[2]),
+                    () -> "size " + count[0] + ", protection " + count[1] + ", depth " + count[2]);
+            assertEquals(0, game.getUndoDepth());
+        }
+    }
+
+    @Test
+    public void testTableAndDivide() {
+        var expected = new Perft(TestGames.newGame(7, 1), null).perft(4);
+        assertEquals(expected, new Perft(TestGames.newGame(7, 1), new PerftTable(1)).perft(4));
+        for (var parallel : new boolean[]{false, true}) {
+            var counts = Perft.divide(TestGames.newGame(7, 1), new MoveList(), 4, new PerftTable(1), parallel);
+            assertEquals(expected, Arrays.stream(counts).sum());
+        }
+    }
+
+    @Test
+    public void testDepthOutOfRange() {
+        var perft = new Perft(TestGames.newGame(5, 0), null);
+        assertThrows(IllegalArgumentException.class, () -> perft.perft(-1));
+        assertThrows(IllegalArgumentException.class, () -> perft.perft(65));
+    }
+}